@@ -0,0 +1,111 @@
+package org.example.benchmark;
+
+import org.example.constants.LoanStatus;
+import org.example.constants.PaymentType;
+import org.example.dao.impl.LoanDAOImpl;
+import org.example.dao.impl.PaymentDAOImpl;
+import org.example.model.Loan;
+import org.example.model.Payment;
+import org.example.model.User;
+import org.example.service.LoanService;
+import org.example.service.PaymentService;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+final class BenchmarkFixtures {
+
+    static final LocalDate START_DATE = LocalDate.of(2025, 1, 15);
+
+    private BenchmarkFixtures() {
+    }
+
+    static LoanService inMemoryLoanService() {
+        return new LoanService(new LoanDAOImpl(null));
+    }
+
+    static PaymentService inMemoryPaymentService(LoanService loanService) {
+        return new PaymentService(new InMemoryPaymentDAO(), loanService);
+    }
+
+    static Loan loan(long id, BigDecimal amount, BigDecimal interestRate, int term) {
+        return Loan.builder()
+                .id(id)
+                .amount(amount)
+                .interestRate(interestRate)
+                .startDate(START_DATE)
+                .endDate(START_DATE.plusMonths(term))
+                .status(LoanStatus.ACTIVE)
+                .build();
+    }
+
+    static List<Loan> portfolio(int size, int term, long seed) {
+        Random random = new Random(seed);
+        List<Loan> loans = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            BigDecimal amount = BigDecimal.valueOf(1_000 + random.nextInt(49_000)).setScale(2);
+            BigDecimal rate = BigDecimal.valueOf(1 + random.nextInt(40), 2);
+            loans.add(loan(i + 1, amount, rate, term));
+        }
+        return loans;
+    }
+
+    static Loan withSchedule(Loan loan, PaymentService paymentService, int paidInstallments) {
+        List<Payment> schedule = paymentService.generateDifferentiatedSchedule(loan);
+        for (int i = 0; i < paidInstallments && i < schedule.size(); i++) {
+            Payment payment = schedule.get(i);
+            payment.setType(PaymentType.PAID);
+            payment.setPaidDate(payment.getDueDate().plusDays(5));
+        }
+        loan.setPayments(schedule);
+        return loan;
+    }
+
+    static SessionFactory h2SessionFactory() {
+        return new Configuration()
+                .addAnnotatedClass(User.class)
+                .addAnnotatedClass(Loan.class)
+                .addAnnotatedClass(Payment.class)
+                .setProperty("hibernate.connection.url", "jdbc:h2:mem:p2p-benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1")
+                .setProperty("hibernate.connection.username", "sa")
+                .setProperty("hibernate.connection.pool_size", "10")
+                .setProperty("hibernate.hbm2ddl.auto", "create-drop")
+                .setProperty("hibernate.jdbc.batch_size", "50")
+                .setProperty("hibernate.order_inserts", "true")
+                .setProperty("hibernate.order_updates", "true")
+                .buildSessionFactory();
+    }
+
+    static class InMemoryPaymentDAO extends PaymentDAOImpl {
+
+        InMemoryPaymentDAO() {
+            super(null);
+        }
+
+        @Override
+        public Payment save(Payment entity) {
+            return entity;
+        }
+
+        @Override
+        public List<Payment> saveAll(Collection<Payment> entities) {
+            return new ArrayList<>(entities);
+        }
+
+        @Override
+        public Payment update(Payment entity) {
+            return entity;
+        }
+
+        @Override
+        public List<Payment> updateAll(Collection<Payment> entities) {
+            return new ArrayList<>(entities);
+        }
+    }
+}
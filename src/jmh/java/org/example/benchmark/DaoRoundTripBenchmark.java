@@ -0,0 +1,100 @@
+package org.example.benchmark;
+
+import org.example.cache.DebtorExposureCache;
+import org.example.dao.LoanDAO;
+import org.example.dao.UserDAO;
+import org.example.dao.impl.LoanDAOImpl;
+import org.example.dao.impl.PaymentDAOImpl;
+import org.example.dao.impl.UserDAOImpl;
+import org.example.dto.LoanDTO;
+import org.example.model.Loan;
+import org.example.model.User;
+import org.example.service.LoanService;
+import org.example.service.PaymentService;
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DaoRoundTripBenchmark {
+
+    @Param({"100", "1000"})
+    private int portfolioSize;
+
+    @Param({"12"})
+    private int term;
+
+    private SessionFactory sessionFactory;
+    private LoanDAO loanDAO;
+    private LoanService loanService;
+    private PaymentService paymentService;
+    private List<User> users;
+    private List<Long> loanIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        sessionFactory = BenchmarkFixtures.h2SessionFactory();
+        UserDAO userDAO = new UserDAOImpl(sessionFactory);
+        loanDAO = new LoanDAOImpl(sessionFactory);
+        loanService = new LoanService(loanDAO, new BigDecimal("1000000000"), new DebtorExposureCache(0, Duration.ZERO));
+        paymentService = new PaymentService(new PaymentDAOImpl(sessionFactory), loanService);
+
+        users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            users.add(userDAO.save(User.builder()
+                    .firstName("First" + i).lastName("Last" + i)
+                    .phoneNumber("+38000000" + i).email("user" + i + "@example.org")
+                    .build()));
+        }
+        loanIds = new ArrayList<>();
+        for (int i = 0; i < portfolioSize; i++) {
+            loanIds.add(loanService.createLoan(loanDTO(), paymentService).getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sessionFactory.close();
+    }
+
+    @Benchmark
+    public Loan createLoan() {
+        return loanService.createLoan(loanDTO(), paymentService);
+    }
+
+    @Benchmark
+    public boolean canDebtorTakeNewLoan() {
+        return loanService.canDebtorTakeNewLoan(randomUser());
+    }
+
+    @Benchmark
+    public Loan findById() {
+        return loanDAO.findById(loanIds.get(ThreadLocalRandom.current().nextInt(loanIds.size())));
+    }
+
+    @Benchmark
+    public List<Loan> getActiveLoansForCreditorInThisYear() {
+        return loanService.getActiveLoansForCreditorInThisYear(randomUser());
+    }
+
+    private LoanDTO loanDTO() {
+        User creditor = randomUser();
+        User debtor = randomUser();
+        return new LoanDTO(creditor, debtor, new BigDecimal("10000.00"), new BigDecimal("0.15"), term);
+    }
+
+    private User randomUser() {
+        return users.get(ThreadLocalRandom.current().nextInt(users.size()));
+    }
+}
@@ -0,0 +1,54 @@
+package org.example.benchmark;
+
+import org.example.model.Loan;
+import org.example.service.LoanService;
+import org.example.service.PaymentService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PortfolioBenchmark {
+
+    @Param({"1000", "10000"})
+    private int portfolioSize;
+
+    @Param({"12"})
+    private int term;
+
+    private PaymentService paymentService;
+    private List<Loan> newLoans;
+    private List<Loan> lateLoans;
+
+    @Setup
+    public void setUp() {
+        LoanService loanService = BenchmarkFixtures.inMemoryLoanService();
+        paymentService = BenchmarkFixtures.inMemoryPaymentService(loanService);
+        newLoans = BenchmarkFixtures.portfolio(portfolioSize, term, 42);
+        lateLoans = BenchmarkFixtures.portfolio(portfolioSize, term, 43).stream()
+                .map(loan -> BenchmarkFixtures.withSchedule(loan, paymentService, term / 2))
+                .toList();
+    }
+
+    @Benchmark
+    public void generatePortfolioSchedules(Blackhole blackhole) {
+        for (Loan loan : newLoans) {
+            blackhole.consume(paymentService.generateDifferentiatedSchedule(loan));
+        }
+    }
+
+    @Benchmark
+    public void recalculatePortfolio(Blackhole blackhole) {
+        for (Loan loan : lateLoans) {
+            paymentService.recalculateRemainingSchedule(loan);
+            blackhole.consume(loan);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.benchmark;
+
+import org.example.model.Loan;
+import org.example.model.Payment;
+import org.example.service.LoanService;
+import org.example.service.PaymentService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScheduleBenchmark {
+
+    @Param({"3", "6", "12"})
+    private int term;
+
+    private LoanService loanService;
+    private PaymentService paymentService;
+    private Loan newLoan;
+    private Loan lateLoan;
+
+    @Setup
+    public void setUp() {
+        loanService = BenchmarkFixtures.inMemoryLoanService();
+        paymentService = BenchmarkFixtures.inMemoryPaymentService(loanService);
+        newLoan = BenchmarkFixtures.loan(1, new BigDecimal("50000.00"), new BigDecimal("0.15"), term);
+        lateLoan = BenchmarkFixtures.withSchedule(
+                BenchmarkFixtures.loan(2, new BigDecimal("50000.00"), new BigDecimal("0.15"), term),
+                paymentService, term / 2);
+    }
+
+    @Benchmark
+    public List<Payment> generateDifferentiatedSchedule() {
+        return paymentService.generateDifferentiatedSchedule(newLoan);
+    }
+
+    @Benchmark
+    public Loan recalculateRemainingSchedule() {
+        paymentService.recalculateRemainingSchedule(lateLoan);
+        return lateLoan;
+    }
+
+    @Benchmark
+    public BigDecimal processInterestAccrual() {
+        return loanService.processInterestAccrual(newLoan, BenchmarkFixtures.START_DATE,
+                BenchmarkFixtures.START_DATE.plusMonths(1), newLoan.getAmount());
+    }
+
+    @Benchmark
+    public BigDecimal calculateRemainingDebt() {
+        return loanService.calculateRemainingDebt(lateLoan);
+    }
+}
@@ -0,0 +1,100 @@
+package org.example.cache;
+
+import org.example.dto.EligibilitySnapshot;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+public class DebtorExposureCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Map<Long, Entry> entries;
+
+    private long generation;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public DebtorExposureCache(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                if (size() > DebtorExposureCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public EligibilitySnapshot get(Long debtorId, Function<Long, EligibilitySnapshot> loader) {
+        if (maxEntries <= 0) {
+            return loader.apply(debtorId);
+        }
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(debtorId);
+            if (entry != null && !entry.isExpired(System.nanoTime())) {
+                hits++;
+                return entry.snapshot();
+            }
+            if (entry != null) {
+                entries.remove(debtorId);
+                evictions++;
+            }
+            misses++;
+            loadGeneration = generation;
+        }
+        EligibilitySnapshot snapshot = loader.apply(debtorId);
+        synchronized (this) {
+            if (generation == loadGeneration) {
+                entries.put(debtorId, new Entry(snapshot, System.nanoTime() + ttlNanos));
+            }
+        }
+        return snapshot;
+    }
+
+    public synchronized void adjust(Long debtorId, UnaryOperator<EligibilitySnapshot> adjustment) {
+        generation++;
+        Entry entry = entries.get(debtorId);
+        if (entry != null) {
+            entries.put(debtorId, new Entry(adjustment.apply(entry.snapshot()), entry.expiresAt()));
+        }
+    }
+
+    public synchronized void invalidate(Long debtorId) {
+        generation++;
+        entries.remove(debtorId);
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(hits, misses, evictions, entries.size());
+    }
+
+    private record Entry(EligibilitySnapshot snapshot, long expiresAt) {
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size) {
+
+        public double hitRatio() {
+            long requests = hits + misses;
+            return requests == 0 ? 0 : (double) hits / requests;
+        }
+    }
+}
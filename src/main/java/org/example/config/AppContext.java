@@ -1,33 +1,100 @@
 package org.example.config;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import org.example.dao.AbstractQueriesDAO;
+import org.example.dao.AnalyticsDAO;
 import org.example.dao.LoanDAO;
 import org.example.dao.PaymentDAO;
+import org.example.dao.TransactionTemplate;
 import org.example.dao.UserDAO;
+import org.example.dao.impl.AnalyticsDAOImpl;
 import org.example.dao.impl.LoanDAOImpl;
 import org.example.dao.impl.PaymentDAOImpl;
 import org.example.dao.impl.UserDAOImpl;
+import org.example.job.JobScheduler;
+import org.example.job.MaintenanceJobs;
+import org.example.metrics.InstrumentedProxy;
+import org.example.metrics.MetricsRegistry;
 import org.example.model.Loan;
 import org.example.model.Payment;
 import org.example.model.User;
+import org.example.service.AnalyticsService;
+import org.example.service.AsyncServices;
+import org.example.service.LoanBalanceChecker;
 import org.example.service.LoanService;
+import org.example.service.PaymentIngestionService;
 import org.example.service.PaymentService;
+import org.example.service.RepricingEngine;
 import org.example.service.UserService;
 import org.hibernate.SessionFactory;
 
+import java.time.Duration;
+
 @Getter
 @Setter
-public class AppContext {
+public class AppContext implements AutoCloseable {
     private final SessionFactory sessionFactory = HibernateUtil.getSessionFactory();
+    private final MetricsRegistry metrics = createMetrics(sessionFactory);
+    private final TransactionTemplate transactions = new TransactionTemplate(sessionFactory);
+
+    private final UserDAO userDAO =
+            InstrumentedProxy.wrap(UserDAO.class, new UserDAOImpl(sessionFactory), metrics, "dao.user");
+    private final PaymentDAO paymentDAO =
+            InstrumentedProxy.wrap(PaymentDAO.class, new PaymentDAOImpl(sessionFactory), metrics, "dao.payment");
+    private final LoanDAO loanDAO =
+            InstrumentedProxy.wrap(LoanDAO.class, new LoanDAOImpl(sessionFactory), metrics, "dao.loan");
+    private final AnalyticsDAO analyticsDAO =
+            InstrumentedProxy.wrap(AnalyticsDAO.class, new AnalyticsDAOImpl(sessionFactory), metrics, "dao.analytics");
+
+    private final LoanService loanService = new LoanService(loanDAO, transactions, metrics);
+    private final PaymentService paymentService = new PaymentService(paymentDAO, loanService, transactions, metrics);
+    private final UserService userService = new UserService(userDAO, transactions, metrics);
+    private final AnalyticsService analyticsService = new AnalyticsService(analyticsDAO, metrics);
+    private final RepricingEngine repricingEngine =
+            new RepricingEngine(loanDAO, paymentDAO, paymentService, loanService.getLoanLocks(), transactions, metrics);
+    private final PaymentIngestionService paymentIngestionService =
+            new PaymentIngestionService(paymentDAO, loanDAO, repricingEngine, transactions, metrics);
+    private final LoanBalanceChecker loanBalanceChecker = new LoanBalanceChecker(loanDAO, loanService.getLoanLocks(), metrics);
+
+    private final JobScheduler jobScheduler =
+            new JobScheduler(Settings.getInt("p2p.jobs.threads", "P2P_JOBS_THREADS", 2));
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private AsyncServices asyncServices;
+
+    public synchronized AsyncServices getAsyncServices() {
+        if (asyncServices == null) {
+            asyncServices = new AsyncServices(loanService, paymentService, userService);
+        }
+        return asyncServices;
+    }
 
-    private final UserDAO userDAO = new UserDAOImpl(sessionFactory);
-    private final PaymentDAO paymentDAO = new PaymentDAOImpl(sessionFactory);
-    private final LoanDAO loanDAO = new LoanDAOImpl(sessionFactory);
+    private static MetricsRegistry createMetrics(SessionFactory sessionFactory) {
+        if (!Settings.getBoolean("p2p.metrics.enabled", "P2P_METRICS_ENABLED", false)) {
+            return MetricsRegistry.disabled();
+        }
+        MetricsRegistry metrics = new MetricsRegistry(true);
+        metrics.bindHibernateStatistics(sessionFactory);
+        metrics.registerMBean(Settings.getString("p2p.metrics.jmx-name", "P2P_METRICS_JMX_NAME", "org.example:type=Metrics"));
+        return metrics;
+    }
 
-    private final LoanService loanService = new LoanService(loanDAO);
-    private final PaymentService paymentService = new PaymentService(paymentDAO, loanService);
-    private final UserService userService = new UserService(userDAO);
+    public void startJobs() {
+        new MaintenanceJobs(loanService, repricingEngine, loanBalanceChecker).registerAll(jobScheduler);
+    }
 
+    @Override
+    public void close() {
+        jobScheduler.shutdown(Settings.getDuration("p2p.jobs.shutdown-timeout", "P2P_JOBS_SHUTDOWN_TIMEOUT", Duration.ofSeconds(30)));
+        synchronized (this) {
+            if (asyncServices != null) {
+                asyncServices.close();
+            }
+        }
+        metrics.unregisterMBean();
+        sessionFactory.close();
+    }
 }
@@ -0,0 +1,32 @@
+package org.example.config;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+public record CacheRegionStats(String region, long hits, long misses, long puts, long elementsInMemory) {
+
+    public static List<CacheRegionStats> snapshot(SessionFactory sessionFactory) {
+        Statistics statistics = sessionFactory.getStatistics();
+        return Arrays.stream(statistics.getSecondLevelCacheRegionNames())
+                .sorted()
+                .map(statistics::getCacheRegionStatistics)
+                .filter(Objects::nonNull)
+                .map(CacheRegionStats::of)
+                .toList();
+    }
+
+    private static CacheRegionStats of(CacheRegionStatistics statistics) {
+        return new CacheRegionStats(statistics.getRegionName(), statistics.getHitCount(), statistics.getMissCount(),
+                statistics.getPutCount(), statistics.getElementCountInMemory());
+    }
+
+    public double hitRatio() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+@Slf4j
+public record ConnectionPoolMetrics(int activeConnections,
+                                    int idleConnections,
+                                    int totalConnections,
+                                    int threadsAwaitingConnection,
+                                    long acquisitions,
+                                    double averageAcquireMillis,
+                                    double maxAcquireMillis) {
+
+    private static final String POOL_NAME = "hibernate.hikari.poolName";
+
+    public static ConnectionPoolMetrics snapshot(SessionFactory sessionFactory) {
+        ConnectionProvider connectionProvider = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(ConnectionProvider.class);
+
+        long acquisitions = 0;
+        double averageAcquireMillis = 0;
+        double maxAcquireMillis = 0;
+        if (connectionProvider != null && connectionProvider.isUnwrappableAs(MeteredConnectionProvider.class)) {
+            MeteredConnectionProvider metered = connectionProvider.unwrap(MeteredConnectionProvider.class);
+            acquisitions = metered.getAcquisitionCount();
+            averageAcquireMillis = acquisitions == 0 ? 0 : metered.getTotalAcquireNanos() / 1_000_000.0 / acquisitions;
+            maxAcquireMillis = metered.getMaxAcquireNanos() / 1_000_000.0;
+        }
+
+        Object poolName = sessionFactory.getProperties().get(POOL_NAME);
+        int[] pool = poolName == null ? new int[]{-1, -1, -1, -1} : readPoolMBean(poolName.toString());
+        return new ConnectionPoolMetrics(pool[0], pool[1], pool[2], pool[3],
+                acquisitions, averageAcquireMillis, maxAcquireMillis);
+    }
+
+    private static int[] readPoolMBean(String poolName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName("com.zaxxer.hikari:type=Pool (" + poolName + ")");
+            return new int[]{
+                    (Integer) server.getAttribute(name, "ActiveConnections"),
+                    (Integer) server.getAttribute(name, "IdleConnections"),
+                    (Integer) server.getAttribute(name, "TotalConnections"),
+                    (Integer) server.getAttribute(name, "ThreadsAwaitingConnection")
+            };
+        } catch (JMException e) {
+            logger.debug("Pool MBean for {} is not available: {}", poolName, e.getMessage());
+            return new int[]{-1, -1, -1, -1};
+        }
+    }
+}
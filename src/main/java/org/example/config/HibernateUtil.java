@@ -1,22 +1,62 @@
 package org.example.config;
 
 import lombok.Getter;
-import lombok.NoArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
-import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.cfg.Configuration;
 
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Map.entry;
+
 public class HibernateUtil {
+    private static final Map<String, String> ENVIRONMENT_OVERRIDES = Map.ofEntries(
+            entry("hibernate.connection.url", "DB_URL"),
+            entry("hibernate.connection.username", "DB_USERNAME"),
+            entry("hibernate.connection.password", "DB_PASSWORD"),
+            entry("hibernate.hikari.maximumPoolSize", "DB_POOL_MAX_SIZE"),
+            entry("hibernate.hikari.minimumIdle", "DB_POOL_MIN_IDLE"),
+            entry("hibernate.hikari.idleTimeout", "DB_POOL_IDLE_TIMEOUT_MS"),
+            entry("hibernate.hikari.connectionTimeout", "DB_POOL_CONNECTION_TIMEOUT_MS"),
+            entry("hibernate.hikari.leakDetectionThreshold", "DB_POOL_LEAK_DETECTION_MS"),
+            entry("hibernate.hikari.dataSource.cachePrepStmts", "DB_STATEMENT_CACHE_ENABLED"),
+            entry("hibernate.hikari.dataSource.prepStmtCacheSize", "DB_STATEMENT_CACHE_SIZE"),
+            entry("hibernate.hikari.dataSource.rewriteBatchedStatements", "DB_REWRITE_BATCHED_STATEMENTS"),
+            entry("hibernate.show_sql", "DB_SHOW_SQL"),
+            entry("hibernate.log_slow_query", "DB_SLOW_QUERY_MS"),
+            entry("hibernate.jdbc.batch_size", "DB_JDBC_BATCH_SIZE"),
+            entry("hibernate.default_batch_fetch_size", "DB_BATCH_FETCH_SIZE"),
+            entry("hibernate.order_inserts", "DB_ORDER_INSERTS"),
+            entry("hibernate.hbm2ddl.auto", "DB_SCHEMA_ACTION"),
+            entry("hibernate.cache.use_second_level_cache", "DB_SECOND_LEVEL_CACHE"),
+            entry("hibernate.cache.use_query_cache", "DB_QUERY_CACHE"),
+            entry("hibernate.cache.region.factory_class", "DB_CACHE_REGION_FACTORY"),
+            entry("hibernate.generate_statistics", "DB_STATISTICS")
+    );
+
     @Getter
     private static final SessionFactory sessionFactory;
 
     static {
         try {
             Configuration configuration = new Configuration().configure();
+            ENVIRONMENT_OVERRIDES.forEach((property, environmentVariable) ->
+                    Settings.get(property, environmentVariable)
+                            .ifPresent(value -> configuration.setProperty(property, value)));
             sessionFactory = configuration.buildSessionFactory();
+            if (Settings.getBoolean("p2p.db.migrate", "P2P_DB_MIGRATE", true)) {
+                new SchemaMigrator(sessionFactory).migrate();
+            }
         } catch (Exception e) {
             throw new ExceptionInInitializerError("Session creation is failed" + e);
         }
     }
+
+    public static ConnectionPoolMetrics getConnectionPoolMetrics() {
+        return ConnectionPoolMetrics.snapshot(sessionFactory);
+    }
+
+    public static List<CacheRegionStats> getCacheRegionStats() {
+        return CacheRegionStats.snapshot(sessionFactory);
+    }
 }
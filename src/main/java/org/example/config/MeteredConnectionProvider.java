@@ -0,0 +1,116 @@
+package org.example.config;
+
+import org.hibernate.HibernateException;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.jdbc.connections.spi.DatabaseConnectionInfo;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.ServiceRegistryAwareService;
+import org.hibernate.service.spi.ServiceRegistryImplementor;
+import org.hibernate.service.spi.Stoppable;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class MeteredConnectionProvider implements ConnectionProvider, Configurable, ServiceRegistryAwareService, Stoppable {
+
+    public static final String DELEGATE = "hibernate.connection.metered.delegate";
+
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+
+    private ConnectionProvider delegate;
+    private ServiceRegistryImplementor serviceRegistry;
+
+    @Override
+    public void injectServices(ServiceRegistryImplementor serviceRegistry) {
+        this.serviceRegistry = serviceRegistry;
+    }
+
+    @Override
+    public void configure(Map<String, Object> configurationValues) {
+        Object delegateClass = configurationValues.get(DELEGATE);
+        if (delegateClass == null) {
+            throw new HibernateException("Metered connection provider: " + DELEGATE + " is not set");
+        }
+        try {
+            delegate = (ConnectionProvider) Class.forName(delegateClass.toString())
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new HibernateException("Metered connection provider: cannot create " + delegateClass, e);
+        }
+        if (delegate instanceof ServiceRegistryAwareService registryAware && serviceRegistry != null) {
+            registryAware.injectServices(serviceRegistry);
+        }
+        if (delegate instanceof Configurable configurable) {
+            configurable.configure(configurationValues);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection connection = delegate.getConnection();
+        long elapsed = System.nanoTime() - start;
+        acquisitions.increment();
+        acquireNanos.add(elapsed);
+        maxAcquireNanos.accumulateAndGet(elapsed, Math::max);
+        return connection;
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        delegate.closeConnection(connection);
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return delegate.supportsAggressiveRelease();
+    }
+
+    @Override
+    public DatabaseConnectionInfo getDatabaseConnectionInfo(Dialect dialect) {
+        return delegate.getDatabaseConnectionInfo(dialect);
+    }
+
+    @Override
+    public void stop() {
+        if (delegate instanceof Stoppable stoppable) {
+            stoppable.stop();
+        }
+    }
+
+    public long getAcquisitionCount() {
+        return acquisitions.sum();
+    }
+
+    public long getTotalAcquireNanos() {
+        return acquireNanos.sum();
+    }
+
+    public long getMaxAcquireNanos() {
+        return maxAcquireNanos.get();
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> unwrapType) {
+        return unwrapType.isInstance(this) || delegate.isUnwrappableAs(unwrapType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (unwrapType.isInstance(this)) {
+            return (T) this;
+        }
+        if (delegate.isUnwrappableAs(unwrapType)) {
+            return delegate.unwrap(unwrapType);
+        }
+        throw new UnknownUnwrapTypeException(unwrapType);
+    }
+}
@@ -0,0 +1,173 @@
+package org.example.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+@Slf4j
+public class SchemaMigrator {
+
+    private static final String LOCATION = "db/migration";
+    private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+
+    private final SessionFactory sessionFactory;
+
+    public SchemaMigrator(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public int migrate() {
+        List<Migration> migrations = discover();
+        try (Session session = sessionFactory.openSession()) {
+            return session.doReturningWork(connection -> apply(connection, migrations));
+        }
+    }
+
+    private int apply(Connection connection, List<Migration> migrations) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("""
+                    create table if not exists schema_version (
+                        version int not null,
+                        description varchar(200) not null,
+                        checksum bigint not null,
+                        applied_at timestamp not null,
+                        primary key (version)
+                    ) engine=InnoDB""");
+            connection.commit();
+
+            Map<Integer, Long> applied = appliedVersions(connection);
+            int appliedCount = 0;
+            for (Migration migration : migrations) {
+                Long checksum = applied.get(migration.version());
+                if (checksum != null) {
+                    if (checksum != migration.checksum()) {
+                        logger.warn("Migration V{} was changed after it had been applied", migration.version());
+                    }
+                    continue;
+                }
+                logger.info("Applying migration V{}__{}", migration.version(), migration.description());
+                for (String sql : migration.statements()) {
+                    statement.execute(sql);
+                }
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "insert into schema_version (version, description, checksum, applied_at) values (?, ?, ?, ?)")) {
+                    insert.setInt(1, migration.version());
+                    insert.setString(2, migration.description());
+                    insert.setLong(3, migration.checksum());
+                    insert.setTimestamp(4, Timestamp.from(Instant.now()));
+                    insert.executeUpdate();
+                }
+                connection.commit();
+                appliedCount++;
+            }
+            return appliedCount;
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private Map<Integer, Long> appliedVersions(Connection connection) throws SQLException {
+        Map<Integer, Long> versions = new HashMap<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("select version, checksum from schema_version")) {
+            while (resultSet.next()) {
+                versions.put(resultSet.getInt(1), resultSet.getLong(2));
+            }
+        }
+        return versions;
+    }
+
+    private List<Migration> discover() {
+        URL location = Thread.currentThread().getContextClassLoader().getResource(LOCATION);
+        if (location == null) {
+            return List.of();
+        }
+        try {
+            URI uri = location.toURI();
+            if ("jar".equals(uri.getScheme())) {
+                try (FileSystem fileSystem = FileSystems.newFileSystem(uri, Map.of())) {
+                    return read(fileSystem.getPath(LOCATION));
+                }
+            }
+            return read(Path.of(uri));
+        } catch (URISyntaxException | IOException e) {
+            throw new IllegalStateException("Cannot read migrations from " + location, e);
+        }
+    }
+
+    private List<Migration> read(Path directory) throws IOException {
+        List<Migration> migrations = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Matcher matcher = SCRIPT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    String script = Files.readString(file, StandardCharsets.UTF_8);
+                    migrations.add(new Migration(Integer.parseInt(matcher.group(1)),
+                            matcher.group(2).replace('_', ' '), script));
+                }
+            }
+        }
+        migrations.sort(Comparator.comparingInt(Migration::version));
+        return migrations;
+    }
+
+    private record Migration(int version, String description, String script) {
+
+        long checksum() {
+            CRC32 crc = new CRC32();
+            crc.update(script.getBytes(StandardCharsets.UTF_8));
+            return crc.getValue();
+        }
+
+        List<String> statements() {
+            List<String> statements = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            for (String line : script.split("\\R")) {
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                    continue;
+                }
+                current.append(line).append('\n');
+                if (trimmed.endsWith(";")) {
+                    statements.add(current.substring(0, current.lastIndexOf(";")));
+                    current.setLength(0);
+                }
+            }
+            if (!current.toString().isBlank()) {
+                statements.add(current.toString());
+            }
+            return statements;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package org.example.config;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+
+public final class Settings {
+
+    private Settings() {
+    }
+
+    public static Optional<String> get(String property, String environmentVariable) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            value = System.getenv(environmentVariable);
+        }
+        return value == null || value.isBlank() ? Optional.empty() : Optional.of(value.trim());
+    }
+
+    public static String getString(String property, String environmentVariable, String defaultValue) {
+        return get(property, environmentVariable).orElse(defaultValue);
+    }
+
+    public static int getInt(String property, String environmentVariable, int defaultValue) {
+        return get(property, environmentVariable).map(Integer::parseInt).orElse(defaultValue);
+    }
+
+    public static long getLong(String property, String environmentVariable, long defaultValue) {
+        return get(property, environmentVariable).map(Long::parseLong).orElse(defaultValue);
+    }
+
+    public static boolean getBoolean(String property, String environmentVariable, boolean defaultValue) {
+        return get(property, environmentVariable).map(Boolean::parseBoolean).orElse(defaultValue);
+    }
+
+    public static BigDecimal getDecimal(String property, String environmentVariable, BigDecimal defaultValue) {
+        return get(property, environmentVariable).map(BigDecimal::new).orElse(defaultValue);
+    }
+
+    public static Duration getDuration(String property, String environmentVariable, Duration defaultValue) {
+        return get(property, environmentVariable).map(Duration::parse).orElse(defaultValue);
+    }
+}
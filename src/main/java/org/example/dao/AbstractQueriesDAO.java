@@ -2,46 +2,91 @@ package org.example.dao;
 
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
-public abstract class AbstractQueriesDAO<T> implements BaseMethodsDAO<T>{
+public abstract class AbstractQueriesDAO<T> extends AbstractSessionDAO implements BaseMethodsDAO<T>{
     private final Class<T> aClass;
-    protected final SessionFactory sessionFactory;
 
     public AbstractQueriesDAO(Class<T> aClass, SessionFactory sessionFactory) {
+        super(sessionFactory);
         this.aClass = aClass;
-        this.sessionFactory = sessionFactory;
     }
 
     public T save(T entity) {
-        try (Session session = sessionFactory.openSession()) {
-            Transaction transaction = session.beginTransaction();
+        return write(session -> {
             session.persist(entity);
-            transaction.commit();
             return entity;
-        }
+        });
+    }
+
+    public List<T> saveAll(Collection<T> entities) {
+        int batchSize = jdbcBatchSize();
+        return write(session -> {
+            List<T> savedEntities = new ArrayList<>(entities.size());
+            for (T entity : entities) {
+                session.persist(entity);
+                savedEntities.add(entity);
+                if (savedEntities.size() % batchSize == 0) {
+                    flushBatch(session);
+                }
+            }
+            return savedEntities;
+        });
     }
 
     public T update(T entity) {
-        try (Session session = sessionFactory.openSession()) {
-            Transaction transaction = session.beginTransaction();
-            T mergedEntity = (T) session.merge(entity);
-            transaction.commit();
-            return mergedEntity;
-        }
+        return write(session -> session.merge(entity));
+    }
+
+    public List<T> updateAll(Collection<T> entities) {
+        int batchSize = jdbcBatchSize();
+        return write(session -> {
+            List<T> mergedEntities = new ArrayList<>(entities.size());
+            for (T entity : entities) {
+                mergedEntities.add(session.merge(entity));
+                if (mergedEntities.size() % batchSize == 0) {
+                    flushBatch(session);
+                }
+            }
+            return mergedEntities;
+        });
     }
 
     public T findById(Long id) {
-        try (Session session = sessionFactory.openSession()){
-            return session.get(aClass, id);
-        }
+        return read(session -> session.get(aClass, id));
     }
 
     public List<T> findAll() {
-        try (Session session = sessionFactory.openSession()) {
-            return session.createQuery("from " + aClass.getName(), aClass).list();
+        return read(session -> session.createQuery("from " + aClass.getName(), aClass).list());
+    }
+
+    public List<T> findPage(Long afterId, int limit) {
+        return read(session -> session.createQuery("from " + aClass.getName() + " e where e.id > :afterId order by e.id", aClass)
+                .setParameter("afterId", afterId == null ? 0L : afterId)
+                .setMaxResults(limit)
+                .list());
+    }
+
+    public Stream<T> streamAll(int fetchSize) {
+        return stream(session -> session.createQuery("from " + aClass.getName() + " e order by e.id", aClass), fetchSize);
+    }
+
+    /* A shared session keeps its entities managed, so it is only flushed, never cleared, mid-batch. */
+    private void flushBatch(Session session) {
+        session.flush();
+        if (!TransactionTemplate.isBound(sessionFactory)) {
+            session.clear();
         }
     }
+
+    protected int jdbcBatchSize() {
+        int batchSize = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getSessionFactoryOptions().getJdbcBatchSize();
+        return batchSize > 0 ? batchSize : 1;
+    }
 }
@@ -0,0 +1,101 @@
+package org.example.dao;
+
+import jakarta.transaction.Synchronization;
+import org.hibernate.Cache;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.query.MutationQuery;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.query.SelectionQuery;
+
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/* Session handling shared by the DAOs; query-only DAOs extend it directly and get no CRUD methods. */
+public abstract class AbstractSessionDAO {
+    protected static final String LOAN_QUERIES_REGION = "loan-queries";
+    protected static final String ANALYTICS_QUERIES_REGION = "analytics-queries";
+    /* Query space of native single-row updates; no entity maps to it, so Hibernate evicts no cache region for them. */
+    protected static final String SINGLE_ROW_UPDATES = "single-row-updates";
+
+    protected final SessionFactory sessionFactory;
+
+    protected AbstractSessionDAO(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /* Runs work in the session of the current unit of work, or in a short-lived session of its own. */
+    protected <R> R read(Function<Session, R> work) {
+        if (TransactionTemplate.isBound(sessionFactory)) {
+            return work.apply(sessionFactory.getCurrentSession());
+        }
+        try (Session session = sessionFactory.openSession()) {
+            return work.apply(session);
+        }
+    }
+
+    /* Like read, but outside a unit of work the call gets its own transaction. */
+    protected <R> R write(Function<Session, R> work) {
+        if (TransactionTemplate.isBound(sessionFactory)) {
+            return work.apply(sessionFactory.getCurrentSession());
+        }
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            try {
+                R result = work.apply(session);
+                transaction.commit();
+                return result;
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        }
+    }
+
+    /* A native update synchronized on SINGLE_ROW_UPDATES; the caller evicts the row it changed with evictUpdated. */
+    protected static MutationQuery singleRowUpdate(Session session, String sql) {
+        return ((NativeQuery<?>) session.createNativeMutationQuery(sql)).addSynchronizedQuerySpace(SINGLE_ROW_UPDATES);
+    }
+
+    /*
+     * Evicts the one row a native update changed, and the query regions that read its table, now and again when
+     * the transaction ends, so a concurrent reader cannot put the old row back into the cache in between.
+     */
+    protected void evictUpdated(Session session, Class<?> entityClass, Object id, String... queryRegions) {
+        Cache cache = sessionFactory.getCache();
+        Runnable eviction = () -> {
+            cache.evict(entityClass, id);
+            for (String region : queryRegions) {
+                cache.evictQueryRegion(region);
+            }
+        };
+        eviction.run();
+        session.getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                eviction.run();
+            }
+        });
+    }
+
+    protected <R> Stream<R> stream(Function<StatelessSession, SelectionQuery<R>> query, int fetchSize) {
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            return query.apply(session)
+                    .setFetchSize(fetchSize)
+                    .stream()
+                    .onClose(session::close);
+        } catch (RuntimeException e) {
+            session.close();
+            throw e;
+        }
+    }
+}
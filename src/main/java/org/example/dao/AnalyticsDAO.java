@@ -0,0 +1,23 @@
+package org.example.dao;
+
+import org.example.dto.CashFlowBucket;
+import org.example.dto.CreditorOutstanding;
+import org.example.dto.InterestEarned;
+import org.example.dto.MonthlyDefaultRate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface AnalyticsDAO {
+
+    List<CreditorOutstanding> outstandingByCreditor();
+
+    CreditorOutstanding outstandingForCreditor(Long creditorId);
+
+    List<MonthlyDefaultRate> defaultRateByStartMonth(LocalDate startedFrom, LocalDate startedBefore);
+
+    List<CashFlowBucket> expectedCashFlowByDueMonth(LocalDate dueFrom, LocalDate dueBefore);
+
+    List<InterestEarned> interestEarnedByCreditor(LocalDate paidFrom, LocalDate paidBefore);
+
+}
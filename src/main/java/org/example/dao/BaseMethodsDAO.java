@@ -1,10 +1,16 @@
 package org.example.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface BaseMethodsDAO<T> {
     T save(T entity);
+    List<T> saveAll(Collection<T> entities);
     T update(T entity);
+    List<T> updateAll(Collection<T> entities);
     T findById(Long id);
     List<T> findAll();
+    List<T> findPage(Long afterId, int limit);
+    Stream<T> streamAll(int fetchSize);
 }
@@ -1,22 +1,58 @@
 package org.example.dao;
 
 import org.example.constants.LoanStatus;
+import org.example.dto.EligibilitySnapshot;
+import org.example.dto.LoanBalance;
+import org.example.dto.OverdueSweepResult;
 import org.example.model.Loan;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface LoanDAO extends BaseMethodsDAO<Loan>{
 
     List<Loan> getLoansByCreditorId(Long creditorId);
 
+    List<Loan> getLoansByCreditorAndStatusStartedBetween(Long creditorId, LoanStatus loanStatus,
+                                                         LocalDate startedAfter, LocalDate startedBefore);
+
     List<Loan> getLoanByDebtorIdAndStatus(Long debtorId, LoanStatus loanStatus);
 
     BigDecimal sumOfLoansByDebtor(Long debtorId, LoanStatus loanStatus);
 
+    EligibilitySnapshot getEligibilitySnapshot(Long debtorId);
+
     List<Loan> almostExpiredLoans();
 
     List<Loan> getAllLoansByStatus(LoanStatus loanStatus);
 
+    List<Loan> getLoansByStatusPage(LoanStatus loanStatus, Long afterId, int limit);
+
+    List<Long> getLoanIdsByStatusPage(LoanStatus loanStatus, Long afterId, int limit);
+
+    Stream<Loan> streamLoansByStatus(LoanStatus loanStatus, int fetchSize);
+
+    List<Long> getLoanIdsWithOverduePaymentsPage(LocalDate today, Long afterId, int limit);
+
+    List<Loan> findWithPayments(Collection<Long> loanIds);
+
+    Loan findByIdWithPayments(Long loanId);
+
+    OverdueSweepResult markOverdueLoansDefaulted(LocalDate today, int chunkSize);
+
+    boolean compareAndSetStatus(Long loanId, LoanStatus expected, LoanStatus status, LocalDate endDate);
+
+    boolean closeIfFullyPaid(Long loanId, LoanStatus expected, LocalDate endDate);
+
+    boolean setBalance(Long loanId, Long version, LoanBalance balance);
+
+    boolean lockVersion(Long loanId, Long version);
+
+    void recordPaidPayments(Long loanId, int count, BigDecimal amount, BigDecimal principal, LocalDate paidDate);
+
+    void adjustOutstandingTotal(Long loanId, BigDecimal delta);
+
 }
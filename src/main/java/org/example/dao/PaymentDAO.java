@@ -5,7 +5,10 @@ import org.example.model.Loan;
 import org.example.model.Payment;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface PaymentDAO extends BaseMethodsDAO<Payment>{
 
@@ -13,4 +16,12 @@ public interface PaymentDAO extends BaseMethodsDAO<Payment>{
 
     List<Payment> getAllPaymentsByType(PaymentType paymentType);
 
+    List<Payment> getPaymentsByTypePage(PaymentType paymentType, Long afterId, int limit);
+
+    Stream<Payment> streamPaymentsByType(PaymentType paymentType, int fetchSize);
+
+    List<Payment> findPendingByLoanIdsAndDueDates(Collection<Long> loanIds, Collection<LocalDate> dueDates);
+
+    boolean markPaid(Long paymentId, LocalDate paidDate);
+
 }
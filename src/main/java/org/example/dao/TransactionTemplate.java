@@ -0,0 +1,67 @@
+package org.example.dao;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.context.internal.ManagedSessionContext;
+
+import java.util.function.Supplier;
+
+/*
+ * Unit of work for one service operation. The outermost call opens a session, binds it to the current
+ * thread through ManagedSessionContext and commits once at the end; DAO calls made inside join that
+ * session (and its first-level cache) instead of opening their own. Nested calls simply join the outer
+ * unit of work, and any exception rolls the whole unit back.
+ */
+public class TransactionTemplate {
+
+    private static final TransactionTemplate NONE = new TransactionTemplate(null);
+
+    private final SessionFactory sessionFactory;
+
+    public TransactionTemplate(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /* Runs work as is, every DAO call keeps its own session and transaction. */
+    public static TransactionTemplate none() {
+        return NONE;
+    }
+
+    public boolean isActive() {
+        return isBound(sessionFactory);
+    }
+
+    public void inTransaction(Runnable work) {
+        inTransaction(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public <T> T inTransaction(Supplier<T> work) {
+        if (sessionFactory == null || isBound(sessionFactory)) {
+            return work.get();
+        }
+        Session session = sessionFactory.openSession();
+        ManagedSessionContext.bind(session);
+        Transaction transaction = session.beginTransaction();
+        try {
+            T result = work.get();
+            transaction.commit();
+            return result;
+        } catch (RuntimeException | Error e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            ManagedSessionContext.unbind(sessionFactory);
+            session.close();
+        }
+    }
+
+    static boolean isBound(SessionFactory sessionFactory) {
+        return sessionFactory != null && ManagedSessionContext.hasBind(sessionFactory);
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.dao.impl;
+
+import org.example.constants.LoanStatus;
+import org.example.constants.PaymentType;
+import org.example.dao.AbstractSessionDAO;
+import org.example.dao.AnalyticsDAO;
+import org.example.dto.CashFlowBucket;
+import org.example.dto.CreditorOutstanding;
+import org.example.dto.InterestEarned;
+import org.example.dto.MonthlyDefaultRate;
+import org.hibernate.SessionFactory;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/*
+ * Portfolio figures aggregated by the database and returned as DTO projections, so a dashboard refresh never
+ * hydrates loans or payments. Principal comes from the running balances kept on the loan row; the principal
+ * share of a paid installment is what the loan has repaid so far divided by its paid installments.
+ */
+public class AnalyticsDAOImpl extends AbstractSessionDAO implements AnalyticsDAO {
+
+    public AnalyticsDAOImpl(SessionFactory sessionFactory) {
+        super(sessionFactory);
+    }
+
+    public List<CreditorOutstanding> outstandingByCreditor() {
+        return read(session -> session.createQuery("""
+        select new org.example.dto.CreditorOutstanding(
+            l.creditor.id,
+            count(case when l.status = :active then 1 end),
+            count(case when l.status = :defaulted then 1 end),
+            coalesce(sum(l.outstandingPrincipal), 0),
+            coalesce(sum(case when l.status = :defaulted then l.outstandingPrincipal end), 0),
+            coalesce(sum(l.outstandingTotal), 0))
+        from Loan l
+        where l.status in (:active, :defaulted)
+        group by l.creditor.id
+        order by l.creditor.id""", CreditorOutstanding.class)
+                .setParameter("active", LoanStatus.ACTIVE)
+                .setParameter("defaulted", LoanStatus.DEFAULTED)
+                .setCacheable(true)
+                .setCacheRegion(ANALYTICS_QUERIES_REGION)
+                .list());
+    }
+
+    public CreditorOutstanding outstandingForCreditor(Long creditorId) {
+        return read(session -> session.createQuery("""
+        select new org.example.dto.CreditorOutstanding(
+            l.creditor.id,
+            count(case when l.status = :active then 1 end),
+            count(case when l.status = :defaulted then 1 end),
+            coalesce(sum(l.outstandingPrincipal), 0),
+            coalesce(sum(case when l.status = :defaulted then l.outstandingPrincipal end), 0),
+            coalesce(sum(l.outstandingTotal), 0))
+        from Loan l
+        where l.creditor.id = :creditor and l.status in (:active, :defaulted)
+        group by l.creditor.id""", CreditorOutstanding.class)
+                .setParameter("active", LoanStatus.ACTIVE)
+                .setParameter("defaulted", LoanStatus.DEFAULTED)
+                .setParameter("creditor", creditorId)
+                .setCacheable(true)
+                .setCacheRegion(ANALYTICS_QUERIES_REGION)
+                .uniqueResult());
+    }
+
+    public List<MonthlyDefaultRate> defaultRateByStartMonth(LocalDate startedFrom, LocalDate startedBefore) {
+        return read(session -> session.createQuery("""
+        select new org.example.dto.MonthlyDefaultRate(
+            year(l.startDate), month(l.startDate), count(l), count(case when l.status = :defaulted then 1 end))
+        from Loan l
+        where l.startDate >= :startedFrom and l.startDate < :startedBefore
+        group by year(l.startDate), month(l.startDate)
+        order by year(l.startDate), month(l.startDate)""", MonthlyDefaultRate.class)
+                .setParameter("defaulted", LoanStatus.DEFAULTED)
+                .setParameter("startedFrom", startedFrom)
+                .setParameter("startedBefore", startedBefore)
+                .setCacheable(true)
+                .setCacheRegion(ANALYTICS_QUERIES_REGION)
+                .list());
+    }
+
+    public List<CashFlowBucket> expectedCashFlowByDueMonth(LocalDate dueFrom, LocalDate dueBefore) {
+        return read(session -> session.createQuery("""
+        select new org.example.dto.CashFlowBucket(
+            year(p.dueDate), month(p.dueDate), count(p), coalesce(sum(p.amount), 0))
+        from Payment p join p.loan l
+        where p.type = :pending and l.status = :active
+        and p.dueDate >= :dueFrom and p.dueDate < :dueBefore
+        group by year(p.dueDate), month(p.dueDate)
+        order by year(p.dueDate), month(p.dueDate)""", CashFlowBucket.class)
+                .setParameter("pending", PaymentType.PENDING)
+                .setParameter("active", LoanStatus.ACTIVE)
+                .setParameter("dueFrom", dueFrom)
+                .setParameter("dueBefore", dueBefore)
+                .setCacheable(true)
+                .setCacheRegion(ANALYTICS_QUERIES_REGION)
+                .list());
+    }
+
+    public List<InterestEarned> interestEarnedByCreditor(LocalDate paidFrom, LocalDate paidBefore) {
+        return read(session -> session.createQuery("""
+        select new org.example.dto.InterestEarned(
+            l.creditor.id, count(p), coalesce(sum(p.amount), 0),
+            coalesce(sum((l.amount - l.outstandingPrincipal) / l.paidCount), 0))
+        from Payment p join p.loan l
+        where p.type = :paid and p.paidDate >= :paidFrom and p.paidDate < :paidBefore and l.paidCount > 0
+        group by l.creditor.id
+        order by l.creditor.id""", InterestEarned.class)
+                .setParameter("paid", PaymentType.PAID)
+                .setParameter("paidFrom", paidFrom)
+                .setParameter("paidBefore", paidBefore)
+                .setCacheable(true)
+                .setCacheRegion(ANALYTICS_QUERIES_REGION)
+                .list());
+    }
+}
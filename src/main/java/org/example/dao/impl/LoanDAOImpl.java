@@ -1,16 +1,26 @@
 package org.example.dao.impl;
 
+import jakarta.persistence.LockModeType;
 import org.example.constants.LoanStatus;
+import org.example.constants.PaymentType;
 import org.example.dao.AbstractQueriesDAO;
 import org.example.dao.LoanDAO;
+import org.example.dto.EligibilitySnapshot;
+import org.example.dto.LoanBalance;
+import org.example.dto.OverdueSweepResult;
 import org.example.model.Loan;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.jpa.SpecHints;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public class LoanDAOImpl extends AbstractQueriesDAO<Loan> implements LoanDAO {
 
@@ -19,56 +29,279 @@ public class LoanDAOImpl extends AbstractQueriesDAO<Loan> implements LoanDAO {
     }
 
     public List<Loan> getLoansByCreditorId(Long creditorId) {
-        try (Session session = sessionFactory.openSession()) {
-            return session.createQuery("select l from Loan l where l.creditor.id = :creditor", Loan.class)
-                    .setParameter("creditor", creditorId).list();
-        }
+        return read(session -> session.createQuery("select l from Loan l where l.creditor.id = :creditor", Loan.class)
+                .setParameter("creditor", creditorId).list());
+    }
+
+    public List<Loan> getLoansByCreditorAndStatusStartedBetween(Long creditorId, LoanStatus loanStatus,
+                                                                LocalDate startedAfter, LocalDate startedBefore) {
+        return read(session -> session.createQuery("""
+        select l from Loan l
+        where l.creditor.id = :creditor and l.status = :status
+        and l.startDate > :startedAfter and l.startDate < :startedBefore""", Loan.class)
+                .setParameter("creditor", creditorId)
+                .setParameter("status", loanStatus)
+                .setParameter("startedAfter", startedAfter)
+                .setParameter("startedBefore", startedBefore)
+                .setCacheable(true)
+                .setCacheRegion(LOAN_QUERIES_REGION)
+                .list());
     }
 
     public List<Loan> getLoanByDebtorIdAndStatus(Long debtorId, LoanStatus loanStatus) {
-        try (Session session = sessionFactory.openSession()) {
-            return session.createQuery("select l from Loan l where l.debtor.id = :debtor and l.status = :status", Loan.class)
-                    .setParameter("debtor", debtorId)
-                    .setParameter("status", loanStatus)
-                    .list();
-        }
+        return read(session -> session.createQuery("select l from Loan l where l.debtor.id = :debtor and l.status = :status", Loan.class)
+                .setParameter("debtor", debtorId)
+                .setParameter("status", loanStatus)
+                .setCacheable(true)
+                .setCacheRegion(LOAN_QUERIES_REGION)
+                .list());
     }
 
     public BigDecimal sumOfLoansByDebtor(Long debtorId, LoanStatus loanStatus) {
-        try (Session session = sessionFactory.openSession()) {
-            return session.createQuery("""
-             select coalesce(sum(l.amount), 0) from Loan l 
-             where l.debtor.id = :debtor and l.status = :status""", BigDecimal.class)
-                    .setParameter("debtor", debtorId)
-                    .setParameter("status", loanStatus).uniqueResult();
-        }
+        return read(session -> session.createQuery("""
+         select coalesce(sum(l.amount), 0) from Loan l 
+         where l.debtor.id = :debtor and l.status = :status""", BigDecimal.class)
+                .setParameter("debtor", debtorId)
+                .setParameter("status", loanStatus).uniqueResult());
+    }
+
+    public EligibilitySnapshot getEligibilitySnapshot(Long debtorId) {
+        return read(session -> session.createQuery("""
+         select new org.example.dto.EligibilitySnapshot(
+             coalesce(sum(case when l.status = :active then l.amount end), 0),
+             count(case when l.status = :active then 1 end),
+             count(case when l.status = :defaulted then 1 end))
+         from Loan l
+         where l.debtor.id = :debtor and l.status in (:active, :defaulted)""", EligibilitySnapshot.class)
+                .setParameter("debtor", debtorId)
+                .setParameter("active", LoanStatus.ACTIVE)
+                .setParameter("defaulted", LoanStatus.DEFAULTED)
+                .uniqueResult());
     }
 
     public List<Loan> almostExpiredLoans() {
-        try (Session session = sessionFactory.openSession()) {
-            LocalDate today = LocalDate.now();
-            LocalDate sevenDaysFromNow = today.plusDays(7);
-
-            return session.createQuery("""
-            select l from Loan l 
-            where l.status = :status and l.endDate 
-            between :startDate and :endDate 
-            order by l.endDate asc
-            """, Loan.class)
-                    .setParameter("status", LoanStatus.ACTIVE)
-                    .setParameter("startDate", today)
-                    .setParameter("endDate", sevenDaysFromNow)
-                    .list();
-        }
+        LocalDate today = LocalDate.now();
+        LocalDate sevenDaysFromNow = today.plusDays(7);
+
+        return read(session -> session.createQuery("""
+        select l from Loan l 
+        where l.status = :status and l.endDate 
+        between :startDate and :endDate 
+        order by l.endDate asc
+        """, Loan.class)
+                .setParameter("status", LoanStatus.ACTIVE)
+                .setParameter("startDate", today)
+                .setParameter("endDate", sevenDaysFromNow)
+                .list());
     }
 
     public List<Loan> getAllLoansByStatus(LoanStatus loanStatus) {
-        try (Session session = sessionFactory.openSession()) {
-            return session.createQuery("""
-            select l from Loan l where l.status = :status""", Loan.class)
-                    .setParameter("status", loanStatus)
-                    .list();
+        return read(session -> session.createQuery("""
+        select l from Loan l where l.status = :status""", Loan.class)
+                .setParameter("status", loanStatus)
+                .list());
+    }
+
+    public List<Loan> getLoansByStatusPage(LoanStatus loanStatus, Long afterId, int limit) {
+        return read(session -> session.createQuery("""
+        select l from Loan l where l.status = :status and l.id > :afterId order by l.id""", Loan.class)
+                .setParameter("status", loanStatus)
+                .setParameter("afterId", afterId == null ? 0L : afterId)
+                .setMaxResults(limit)
+                .list());
+    }
+
+    public List<Long> getLoanIdsByStatusPage(LoanStatus loanStatus, Long afterId, int limit) {
+        return read(session -> session.createQuery("""
+        select l.id from Loan l where l.status = :status and l.id > :afterId order by l.id""", Long.class)
+                .setParameter("status", loanStatus)
+                .setParameter("afterId", afterId == null ? 0L : afterId)
+                .setMaxResults(limit)
+                .list());
+    }
+
+    public Stream<Loan> streamLoansByStatus(LoanStatus loanStatus, int fetchSize) {
+        return stream(session -> session.createQuery("""
+                select l from Loan l where l.status = :status order by l.id""", Loan.class)
+                .setParameter("status", loanStatus), fetchSize);
+    }
+
+    public List<Long> getLoanIdsWithOverduePaymentsPage(LocalDate today, Long afterId, int limit) {
+        return read(session -> session.createQuery("""
+        select l.id from Loan l
+        where l.status = :status and l.id > :afterId and l.id in (
+            select p.loan.id from Payment p where p.type = :type and p.dueDate < :today)
+        order by l.id""", Long.class)
+                .setParameter("status", LoanStatus.ACTIVE)
+                .setParameter("afterId", afterId == null ? 0L : afterId)
+                .setParameter("type", PaymentType.PENDING)
+                .setParameter("today", today)
+                .setMaxResults(limit)
+                .list());
+    }
+
+    public List<Loan> findWithPayments(Collection<Long> loanIds) {
+        if (loanIds.isEmpty()) {
+            return List.of();
         }
+        return read(session -> session.createQuery("select l from Loan l where l.id in :ids", Loan.class)
+                .setParameter("ids", loanIds)
+                .setHint(SpecHints.HINT_SPEC_LOAD_GRAPH, session.getEntityGraph(Loan.WITH_PAYMENTS))
+                .list());
     }
 
-}
\ No newline at end of file
+    public Loan findByIdWithPayments(Long loanId) {
+        return read(session -> session.find(Loan.class, loanId,
+                Map.of(SpecHints.HINT_SPEC_LOAD_GRAPH, session.getEntityGraph(Loan.WITH_PAYMENTS))));
+    }
+
+    public OverdueSweepResult markOverdueLoansDefaulted(LocalDate today, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        List<Long> affectedIds = new ArrayList<>();
+        int updatedCount = 0;
+        long lastId = 0;
+        List<Long> chunk;
+        // Each chunk commits on its own so row locks stay short, even when called inside a unit of work.
+        // The chunk is selected for update, so every selected id is still ACTIVE when the update runs.
+        // A set-based sweep stays a bulk update: each chunk evicts the Loan cache regions once, which shows up
+        // as misses in HibernateUtil.getCacheRegionStats; cheaper than loading every overdue loan.
+        do {
+            try (Session session = sessionFactory.openSession()) {
+                Transaction transaction = session.beginTransaction();
+                chunk = session.createQuery("""
+                select l.id from Loan l
+                where l.status = :status and l.endDate < :today and l.id > :lastId
+                order by l.id""", Long.class)
+                        .setParameter("status", LoanStatus.ACTIVE)
+                        .setParameter("today", today)
+                        .setParameter("lastId", lastId)
+                        .setMaxResults(chunkSize)
+                        .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                        .list();
+                if (!chunk.isEmpty()) {
+                    updatedCount += session.createMutationQuery("""
+                    update Loan l set l.status = :defaulted, l.version = l.version + 1
+                    where l.id in :ids and l.status = :status""")
+                            .setParameter("defaulted", LoanStatus.DEFAULTED)
+                            .setParameter("status", LoanStatus.ACTIVE)
+                            .setParameterList("ids", chunk)
+                            .executeUpdate();
+                    affectedIds.addAll(chunk);
+                    lastId = chunk.get(chunk.size() - 1);
+                }
+                transaction.commit();
+            }
+        } while (chunk.size() == chunkSize);
+        return new OverdueSweepResult(updatedCount, affectedIds);
+    }
+
+    /*
+     * The status changes are conditional single-statement updates in native SQL: an HQL update would evict the
+     * whole Loan and Loan.payments cache regions, so only the changed loan and the status queries are evicted.
+     * The balance writes below change the managed loan and let the version check make them conditional.
+     */
+    public boolean compareAndSetStatus(Long loanId, LoanStatus expected, LoanStatus status, LocalDate endDate) {
+        return write(session -> {
+            boolean updated = singleRowUpdate(session, """
+            update loans set status = :status, end_date = coalesce(:endDate, end_date), version = version + 1
+            where id = :id and status = :expected""")
+                    .setParameter("status", status.name())
+                    .setParameter("endDate", endDate, LocalDate.class)
+                    .setParameter("id", loanId)
+                    .setParameter("expected", expected.name())
+                    .executeUpdate() == 1;
+            if (updated) {
+                evictUpdated(session, Loan.class, loanId, LOAN_QUERIES_REGION, ANALYTICS_QUERIES_REGION);
+            }
+            return updated;
+        });
+    }
+
+    public boolean closeIfFullyPaid(Long loanId, LoanStatus expected, LocalDate endDate) {
+        return write(session -> {
+            boolean updated = singleRowUpdate(session, """
+            update loans set status = :repaid, end_date = :endDate, version = version + 1
+            where id = :id and status = :expected
+            and not exists (select p.id from payments p where p.loan_id = :id and p.type = :pending)""")
+                    .setParameter("repaid", LoanStatus.REPAID.name())
+                    .setParameter("endDate", endDate)
+                    .setParameter("id", loanId)
+                    .setParameter("expected", expected.name())
+                    .setParameter("pending", PaymentType.PENDING.name())
+                    .executeUpdate() == 1;
+            if (updated) {
+                evictUpdated(session, Loan.class, loanId, LOAN_QUERIES_REGION, ANALYTICS_QUERIES_REGION);
+            }
+            return updated;
+        });
+    }
+
+    public boolean setBalance(Long loanId, Long version, LoanBalance balance) {
+        return write(session -> {
+            Loan loan = session.find(Loan.class, loanId);
+            if (loan == null || !loan.getVersion().equals(version)) {
+                return false;
+            }
+            loan.setOutstandingPrincipal(balance.outstandingPrincipal());
+            loan.setOutstandingTotal(balance.outstandingTotal());
+            loan.setPaidCount(balance.paidCount());
+            loan.setLastPaidDate(balance.lastPaidDate());
+            loan.setNextDueDate(balance.nextDueDate());
+            return true;
+        });
+    }
+
+    // The forced increment re-checks the version in the database at commit, so a writer that commits in between fails.
+    public boolean lockVersion(Long loanId, Long version) {
+        return write(session -> {
+            Loan loan = session.find(Loan.class, loanId);
+            if (loan == null || !loan.getVersion().equals(version)) {
+                return false;
+            }
+            session.lock(loan, LockModeType.OPTIMISTIC_FORCE_INCREMENT);
+            return true;
+        });
+    }
+
+    public void recordPaidPayments(Long loanId, int count, BigDecimal amount, BigDecimal principal, LocalDate paidDate) {
+        write(session -> {
+            Loan loan = session.find(Loan.class, loanId);
+            if (loan == null) {
+                return null;
+            }
+            loan.setPaidCount(loan.getPaidCount() + count);
+            if (loan.getOutstandingTotal() != null) {
+                loan.setOutstandingTotal(loan.getOutstandingTotal().subtract(amount));
+            }
+            if (loan.getOutstandingPrincipal() != null) {
+                loan.setOutstandingPrincipal(loan.getOutstandingPrincipal().subtract(principal));
+            }
+            if (loan.getLastPaidDate() == null || loan.getLastPaidDate().isBefore(paidDate)) {
+                loan.setLastPaidDate(paidDate);
+            }
+            loan.setNextDueDate(nextDueDate(session, loanId));
+            return null;
+        });
+    }
+
+    public void adjustOutstandingTotal(Long loanId, BigDecimal delta) {
+        write(session -> {
+            Loan loan = session.find(Loan.class, loanId);
+            if (loan != null && loan.getOutstandingTotal() != null) {
+                loan.setOutstandingTotal(loan.getOutstandingTotal().add(delta));
+            }
+            return null;
+        });
+    }
+
+    // Auto-flush makes the query see payments changed earlier in the same session.
+    private static LocalDate nextDueDate(Session session, Long loanId) {
+        return session.createQuery("""
+        select min(p.dueDate) from Payment p where p.loan.id = :id and p.type = :pending""", LocalDate.class)
+                .setParameter("id", loanId)
+                .setParameter("pending", PaymentType.PENDING)
+                .uniqueResult();
+    }
+}
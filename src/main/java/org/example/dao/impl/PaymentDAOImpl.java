@@ -6,11 +6,13 @@ import org.example.dao.AbstractQueriesDAO;
 import org.example.dao.PaymentDAO;
 import org.example.model.Loan;
 import org.example.model.Payment;
-import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class PaymentDAOImpl extends AbstractQueriesDAO<Payment> implements PaymentDAO {
     public PaymentDAOImpl(SessionFactory sessionFactory) {
@@ -18,20 +20,63 @@ public class PaymentDAOImpl extends AbstractQueriesDAO<Payment> implements Payme
     }
 
     public List<Payment> getPaymentsByLoanIdAndType(Long loanId, PaymentType paymentType) {
-        try (Session session = sessionFactory.openSession()) {
-            return session.createQuery("select p from Payment p where p.loan.id = :loan and p.type = :type", Payment.class)
-                    .setParameter("loan", loanId)
-                    .setParameter("type", paymentType)
-                    .list();
-        }
+        return read(session -> session.createQuery("select p from Payment p where p.loan.id = :loan and p.type = :type", Payment.class)
+                .setParameter("loan", loanId)
+                .setParameter("type", paymentType)
+                .list());
     }
 
     public List<Payment> getAllPaymentsByType(PaymentType paymentType) {
-        try (Session session = sessionFactory.openSession()) {
-            return session.createQuery("""
-            select p from Payment p where p.type = :type""", Payment.class)
-                    .setParameter("type", paymentType)
-                    .list();
+        return read(session -> session.createQuery("""
+        select p from Payment p where p.type = :type""", Payment.class)
+                .setParameter("type", paymentType)
+                .list());
+    }
+
+    public List<Payment> getPaymentsByTypePage(PaymentType paymentType, Long afterId, int limit) {
+        return read(session -> session.createQuery("""
+        select p from Payment p join fetch p.loan
+        where p.type = :type and p.id > :afterId order by p.id""", Payment.class)
+                .setParameter("type", paymentType)
+                .setParameter("afterId", afterId == null ? 0L : afterId)
+                .setMaxResults(limit)
+                .list());
+    }
+
+    public Stream<Payment> streamPaymentsByType(PaymentType paymentType, int fetchSize) {
+        return stream(session -> session.createQuery("""
+                select p from Payment p join fetch p.loan where p.type = :type order by p.id""", Payment.class)
+                .setParameter("type", paymentType), fetchSize);
+    }
+
+    public List<Payment> findPendingByLoanIdsAndDueDates(Collection<Long> loanIds, Collection<LocalDate> dueDates) {
+        if (loanIds.isEmpty() || dueDates.isEmpty()) {
+            return List.of();
         }
+        return read(session -> session.createQuery("""
+        select p from Payment p join fetch p.loan
+        where p.type = :type and p.loan.id in :loanIds and p.dueDate in :dueDates""", Payment.class)
+                .setParameter("type", PaymentType.PENDING)
+                .setParameterList("loanIds", loanIds)
+                .setParameterList("dueDates", dueDates)
+                .list());
+    }
+
+    // A conditional single-statement update; only the paid row and the analytics results are evicted from the cache.
+    public boolean markPaid(Long paymentId, LocalDate paidDate) {
+        return write(session -> {
+            boolean updated = singleRowUpdate(session, """
+            update payments set type = :paid, paidDate = :paidDate, version = version + 1
+            where id = :id and type = :pending""")
+                    .setParameter("paid", PaymentType.PAID.name())
+                    .setParameter("paidDate", paidDate)
+                    .setParameter("id", paymentId)
+                    .setParameter("pending", PaymentType.PENDING.name())
+                    .executeUpdate() == 1;
+            if (updated) {
+                evictUpdated(session, Payment.class, paymentId, ANALYTICS_QUERIES_REGION);
+            }
+            return updated;
+        });
     }
 }
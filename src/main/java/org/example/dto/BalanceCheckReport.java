@@ -0,0 +1,8 @@
+package org.example.dto;
+
+import java.time.Duration;
+import java.util.List;
+
+public record BalanceCheckReport(int loans, int mismatchedLoans, int repairedLoans, int skippedLoans,
+                                 List<Long> mismatchedLoanIds, Duration elapsed) {
+}
@@ -0,0 +1,11 @@
+package org.example.dto;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+
+public record CashFlowBucket(int year, int month, long payments, BigDecimal expectedAmount) {
+
+    public YearMonth yearMonth() {
+        return YearMonth.of(year, month);
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.dto;
+
+import java.math.BigDecimal;
+
+public record CreditorOutstanding(Long creditorId, long activeLoans, long defaultedLoans,
+                                  BigDecimal outstandingPrincipal, BigDecimal defaultedPrincipal,
+                                  BigDecimal outstandingTotal) {
+
+    public static CreditorOutstanding empty(Long creditorId) {
+        return new CreditorOutstanding(creditorId, 0, 0, BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.dto;
+
+import java.math.BigDecimal;
+
+public record EligibilitySnapshot(BigDecimal activeDebt, long activeLoans, long defaultedLoans) {
+
+    public boolean hasDefaultedLoans() {
+        return defaultedLoans > 0;
+    }
+
+    public EligibilitySnapshot withNewActiveLoan(BigDecimal amount) {
+        return new EligibilitySnapshot(activeDebt.add(amount), activeLoans + 1, defaultedLoans);
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.dto;
+
+import java.time.Duration;
+import java.util.List;
+
+public record IngestionReport(long lines, long appliedPayments, long rejectedLines, int recalculatedLoans,
+                              List<Rejection> rejections, Duration elapsed) {
+
+    public double linesPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : lines * 1_000_000_000.0 / nanos;
+    }
+
+    public record Rejection(long lineNumber, String line, String reason) {
+    }
+}
@@ -0,0 +1,16 @@
+package org.example.dto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public record InterestEarned(Long creditorId, long payments, BigDecimal paidAmount, BigDecimal principalRepaid) {
+
+    public BigDecimal interestEarned() {
+        return paidAmount.subtract(principalRepaid).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    public InterestEarned plus(InterestEarned other) {
+        return new InterestEarned(creditorId, payments + other.payments, paidAmount.add(other.paidAmount),
+                principalRepaid.add(other.principalRepaid));
+    }
+}
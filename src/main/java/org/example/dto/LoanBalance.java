@@ -0,0 +1,28 @@
+package org.example.dto;
+
+import org.example.model.Loan;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+
+public record LoanBalance(BigDecimal outstandingPrincipal, BigDecimal outstandingTotal, int paidCount,
+                          LocalDate lastPaidDate, LocalDate nextDueDate) {
+
+    public static LoanBalance of(Loan loan) {
+        return new LoanBalance(loan.getOutstandingPrincipal(), loan.getOutstandingTotal(), loan.getPaidCount(),
+                loan.getLastPaidDate(), loan.getNextDueDate());
+    }
+
+    public boolean sameAs(LoanBalance other) {
+        return sameAmount(outstandingPrincipal, other.outstandingPrincipal)
+                && sameAmount(outstandingTotal, other.outstandingTotal)
+                && paidCount == other.paidCount
+                && Objects.equals(lastPaidDate, other.lastPaidDate)
+                && Objects.equals(nextDueDate, other.nextDueDate);
+    }
+
+    private static boolean sameAmount(BigDecimal left, BigDecimal right) {
+        return left == null ? right == null : right != null && left.compareTo(right) == 0;
+    }
+}
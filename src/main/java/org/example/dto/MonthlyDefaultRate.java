@@ -0,0 +1,14 @@
+package org.example.dto;
+
+import java.time.YearMonth;
+
+public record MonthlyDefaultRate(int year, int month, long loans, long defaultedLoans) {
+
+    public YearMonth yearMonth() {
+        return YearMonth.of(year, month);
+    }
+
+    public double defaultRate() {
+        return loans == 0 ? 0 : (double) defaultedLoans / loans;
+    }
+}
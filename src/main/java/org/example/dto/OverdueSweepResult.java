@@ -0,0 +1,6 @@
+package org.example.dto;
+
+import java.util.List;
+
+public record OverdueSweepResult(int updatedCount, List<Long> loanIds) {
+}
@@ -0,0 +1,16 @@
+package org.example.dto;
+
+import java.time.Duration;
+import java.util.List;
+
+public record RepricingReport(int loans, int repricedLoans, int updatedPayments,
+                              List<Failure> failures, Duration elapsed) {
+
+    public double loansPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : loans * 1_000_000_000.0 / nanos;
+    }
+
+    public record Failure(Long loanId, String error) {
+    }
+}
@@ -0,0 +1,52 @@
+package org.example.job;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+public class JobMetrics {
+
+    private final String jobName;
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+    private final AtomicLong lastNanos = new AtomicLong();
+    private final AtomicReference<Instant> lastFinishedAt = new AtomicReference<>();
+
+    public JobMetrics(String jobName) {
+        this.jobName = jobName;
+    }
+
+    void recordRun(long elapsedNanos, boolean failed) {
+        runs.increment();
+        if (failed) {
+            failures.increment();
+        }
+        totalNanos.add(elapsedNanos);
+        lastNanos.set(elapsedNanos);
+        maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+        lastFinishedAt.set(Instant.now());
+    }
+
+    void recordSkipped() {
+        skipped.increment();
+    }
+
+    public Snapshot snapshot() {
+        long runCount = runs.sum();
+        return new Snapshot(jobName, runCount, failures.sum(), skipped.sum(),
+                Duration.ofNanos(lastNanos.get()),
+                Duration.ofNanos(runCount == 0 ? 0 : totalNanos.sum() / runCount),
+                Duration.ofNanos(maxNanos.get()),
+                lastFinishedAt.get());
+    }
+
+    public record Snapshot(String jobName, long runs, long failures, long skipped,
+                           Duration lastDuration, Duration averageDuration, Duration maxDuration,
+                           Instant lastFinishedAt) {
+    }
+}
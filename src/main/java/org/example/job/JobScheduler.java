@@ -0,0 +1,100 @@
+package org.example.job;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+public class JobScheduler {
+
+    private final ScheduledExecutorService executor;
+    private final Map<String, ScheduledJob> jobs = new ConcurrentHashMap<>();
+
+    public JobScheduler(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "p2p-job-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = Executors.newScheduledThreadPool(threads, threadFactory);
+    }
+
+    public void schedule(String name, Duration initialDelay, Duration interval, Runnable task) {
+        ScheduledJob job = new ScheduledJob(name, task);
+        if (jobs.putIfAbsent(name, job) != null) {
+            throw new IllegalArgumentException("Job " + name + " is already scheduled");
+        }
+        executor.scheduleWithFixedDelay(job, initialDelay.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        logger.info("Job {} scheduled every {}", name, interval);
+    }
+
+    public void runNow(String name) {
+        ScheduledJob job = jobs.get(name);
+        if (job == null) {
+            throw new IllegalArgumentException("Job " + name + " is not scheduled");
+        }
+        executor.execute(job);
+    }
+
+    public List<JobMetrics.Snapshot> getMetrics() {
+        return jobs.values().stream()
+                .map(job -> job.metrics.snapshot())
+                .toList();
+    }
+
+    public void shutdown(Duration timeout) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("Jobs did not finish in {}, interrupting", timeout);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class ScheduledJob implements Runnable {
+        private final String name;
+        private final Runnable task;
+        private final JobMetrics metrics;
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        ScheduledJob(String name, Runnable task) {
+            this.name = name;
+            this.task = task;
+            this.metrics = new JobMetrics(name);
+        }
+
+        @Override
+        public void run() {
+            if (!running.compareAndSet(false, true)) {
+                metrics.recordSkipped();
+                logger.debug("Job {} is still running, skipping this run", name);
+                return;
+            }
+            long start = System.nanoTime();
+            boolean failed = false;
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                failed = true;
+                logger.error("Job {} failed", name, e);
+            } finally {
+                metrics.recordRun(System.nanoTime() - start, failed);
+                running.set(false);
+            }
+        }
+    }
+}
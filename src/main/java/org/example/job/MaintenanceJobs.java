@@ -0,0 +1,82 @@
+package org.example.job;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.Settings;
+import org.example.dto.RepricingReport;
+import org.example.model.Loan;
+import org.example.service.LoanBalanceChecker;
+import org.example.service.LoanService;
+import org.example.service.RepricingEngine;
+
+import java.time.Duration;
+import java.util.List;
+
+@Slf4j
+public class MaintenanceJobs {
+
+    public static final String OVERDUE_SWEEP = "overdue-sweep";
+    public static final String EXPIRY_CHECK = "expiry-check";
+    public static final String SCHEDULE_RECALCULATION = "schedule-recalculation";
+    public static final String BALANCE_CHECK = "balance-check";
+
+    private final LoanService loanService;
+    private final RepricingEngine repricingEngine;
+    private final LoanBalanceChecker balanceChecker;
+
+    public MaintenanceJobs(LoanService loanService, RepricingEngine repricingEngine, LoanBalanceChecker balanceChecker) {
+        this.loanService = loanService;
+        this.repricingEngine = repricingEngine;
+        this.balanceChecker = balanceChecker;
+    }
+
+    public void registerAll(JobScheduler scheduler) {
+        Duration initialDelay = Settings.getDuration("p2p.jobs.initial-delay", "P2P_JOBS_INITIAL_DELAY", Duration.ofMinutes(1));
+        scheduler.schedule(OVERDUE_SWEEP, initialDelay,
+                Settings.getDuration("p2p.jobs.overdue-sweep.interval", "P2P_JOBS_OVERDUE_SWEEP_INTERVAL", Duration.ofHours(1)),
+                this::sweepOverdueLoans);
+        scheduler.schedule(EXPIRY_CHECK, initialDelay,
+                Settings.getDuration("p2p.jobs.expiry-check.interval", "P2P_JOBS_EXPIRY_CHECK_INTERVAL", Duration.ofHours(6)),
+                this::checkUpcomingExpirations);
+        scheduler.schedule(SCHEDULE_RECALCULATION, initialDelay,
+                Settings.getDuration("p2p.jobs.schedule-recalculation.interval", "P2P_JOBS_SCHEDULE_RECALCULATION_INTERVAL", Duration.ofHours(24)),
+                this::recalculateLateSchedules);
+        scheduler.schedule(BALANCE_CHECK, initialDelay,
+                Settings.getDuration("p2p.jobs.balance-check.interval", "P2P_JOBS_BALANCE_CHECK_INTERVAL", Duration.ofHours(24)),
+                this::checkLoanBalances);
+    }
+
+    void sweepOverdueLoans() {
+        loanService.sweepOverdueLoans();
+    }
+
+    void checkUpcomingExpirations() {
+        List<Loan> expiringLoans = loanService.getUpcomingExpirations();
+        if (!expiringLoans.isEmpty()) {
+            logger.info("{} active loans expire within 7 days", expiringLoans.size());
+        }
+    }
+
+    // Only ids are read, a keyset page at a time; the engine loads each batch of loans with its payments itself.
+    void recalculateLateSchedules() {
+        int pageSize = Settings.getInt("p2p.jobs.schedule-recalculation.page-size",
+                "P2P_JOBS_SCHEDULE_RECALCULATION_PAGE_SIZE", 1000);
+        int repriced = 0;
+        int failed = 0;
+        Long afterId = null;
+        List<Long> page;
+        do {
+            page = loanService.getLoanIdsWithOverduePayments(afterId, pageSize);
+            if (!page.isEmpty()) {
+                RepricingReport report = repricingEngine.reprice(page);
+                repriced += report.repricedLoans();
+                failed += report.failures().size();
+                afterId = page.get(page.size() - 1);
+            }
+        } while (page.size() == pageSize);
+        logger.info("Recalculated schedules of {} loans, {} failed", repriced, failed);
+    }
+
+    void checkLoanBalances() {
+        balanceChecker.check(Settings.getBoolean("p2p.balance-check.repair", "P2P_BALANCE_CHECK_REPAIR", true));
+    }
+}
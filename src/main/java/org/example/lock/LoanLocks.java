@@ -0,0 +1,90 @@
+package org.example.lock;
+
+import org.example.config.Settings;
+import org.example.metrics.MetricsRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/*
+ * Striped locks keyed by loan id: work on one loan is serialized, work on loans in different stripes runs
+ * in parallel, and memory stays fixed however many loans there are. ReentrantLock rather than synchronized
+ * keeps virtual threads unpinned while they wait, and lets nested operations on the same loan re-enter.
+ * An uncontended acquire is a single tryLock; only waiters are counted and timed.
+ */
+public class LoanLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final long timeoutNanos;
+    private final MetricsRegistry metrics;
+
+    public LoanLocks(MetricsRegistry metrics) {
+        this(Settings.getInt("p2p.loan-locks.stripes", "P2P_LOAN_LOCKS_STRIPES", 256),
+                Settings.getDuration("p2p.loan-locks.timeout", "P2P_LOAN_LOCKS_TIMEOUT", Duration.ofSeconds(30)),
+                metrics);
+    }
+
+    public LoanLocks(int stripes, Duration timeout, MetricsRegistry metrics) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Number of lock stripes must be positive");
+        }
+        int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.timeoutNanos = timeout.toNanos();
+        this.metrics = metrics;
+    }
+
+    public int stripes() {
+        return stripes.length;
+    }
+
+    public void withLock(Long loanId, Runnable work) {
+        withLock(loanId, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public <T> T withLock(Long loanId, Supplier<T> work) {
+        if (loanId == null) {
+            return work.get();
+        }
+        ReentrantLock lock = stripeFor(loanId);
+        if (!lock.tryLock()) {
+            await(loanId, lock);
+        }
+        try {
+            return work.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void await(Long loanId, ReentrantLock lock) {
+        metrics.increment("locks.loan.contended", 1);
+        boolean acquired = metrics.time("locks.loan.wait", () -> {
+            try {
+                return lock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the lock of loan " + loanId, e);
+            }
+        });
+        if (!acquired) {
+            metrics.increment("locks.loan.timeouts", 1);
+            throw new IllegalStateException("Timed out waiting for the lock of loan " + loanId);
+        }
+    }
+
+    ReentrantLock stripeFor(Long loanId) {
+        long hash = loanId * 0x9E3779B97F4A7C15L;
+        return stripes[(int) (hash ^ hash >>> 32) & mask];
+    }
+}
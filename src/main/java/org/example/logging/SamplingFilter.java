@@ -0,0 +1,55 @@
+package org.example.logging;
+
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.filter.Filter;
+import ch.qos.logback.core.spi.FilterReply;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Lets through one in every sampleEvery events and at most maxPerSecond events per second, denying the
+ * rest. Used on noisy loggers such as the slow-query log so a burst of slow statements cannot flood
+ * the appender queue.
+ */
+public class SamplingFilter extends Filter<ILoggingEvent> {
+
+    private int sampleEvery = 1;
+    private int maxPerSecond = Integer.MAX_VALUE;
+
+    private final AtomicLong seen = new AtomicLong();
+    private final AtomicLong windowStartMillis = new AtomicLong();
+    private final AtomicLong acceptedInWindow = new AtomicLong();
+
+    @Override
+    public FilterReply decide(ILoggingEvent event) {
+        if (!isStarted()) {
+            return FilterReply.NEUTRAL;
+        }
+        if (seen.getAndIncrement() % sampleEvery != 0) {
+            return FilterReply.DENY;
+        }
+        long now = System.currentTimeMillis();
+        long windowStart = windowStartMillis.get();
+        if (now - windowStart >= 1000 && windowStartMillis.compareAndSet(windowStart, now)) {
+            acceptedInWindow.set(0);
+        }
+        return acceptedInWindow.incrementAndGet() <= maxPerSecond ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    @Override
+    public void start() {
+        if (sampleEvery <= 0 || maxPerSecond <= 0) {
+            addError("sampleEvery and maxPerSecond must be positive");
+            return;
+        }
+        super.start();
+    }
+
+    public void setSampleEvery(int sampleEvery) {
+        this.sampleEvery = sampleEvery;
+    }
+
+    public void setMaxPerSecond(int maxPerSecond) {
+        this.maxPerSecond = maxPerSecond;
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Times every interface method of a DAO and counts the rows returned as lists. With a disabled registry the
+ * target is returned as is, so there is no proxy on the call path at all.
+ */
+public final class InstrumentedProxy implements InvocationHandler {
+
+    private final Object target;
+    private final MetricsRegistry registry;
+    private final String prefix;
+    private final Map<Method, String> timerNames = new ConcurrentHashMap<>();
+
+    private InstrumentedProxy(Object target, MetricsRegistry registry, String prefix) {
+        this.target = target;
+        this.registry = registry;
+        this.prefix = prefix;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T wrap(Class<T> type, T target, MetricsRegistry registry, String prefix) {
+        if (!registry.isEnabled()) {
+            return target;
+        }
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                new InstrumentedProxy(target, registry, prefix));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            return method.invoke(target, args);
+        }
+        String timerName = timerNames.computeIfAbsent(method, m -> prefix + "." + m.getName());
+        Object result;
+        try (MetricsRegistry.Sample ignored = registry.start(timerName)) {
+            result = method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            registry.increment(timerName + ".errors", 1);
+            throw e.getCause();
+        }
+        if (result instanceof Collection<?> rows) {
+            registry.increment(timerName + ".rows", rows.size());
+        }
+        return result;
+    }
+}
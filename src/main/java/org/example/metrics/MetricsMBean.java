@@ -0,0 +1,101 @@
+package org.example.metrics;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ReflectionException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Exposes the registry as flat JMX attributes ("<timer>.p99Millis", "<counter>", "<gauge>") plus a "dump"
+ * attribute and a "reset" operation. The attribute set is rebuilt on each call, so metrics created after
+ * registration show up without re-registering.
+ */
+class MetricsMBean implements DynamicMBean {
+
+    private static final String DUMP = "dump";
+    private static final String RESET = "reset";
+
+    private final MetricsRegistry registry;
+
+    MetricsMBean(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public Object getAttribute(String attribute) throws AttributeNotFoundException {
+        if (DUMP.equals(attribute)) {
+            return registry.dump();
+        }
+        Object value = attributes().get(attribute);
+        if (value == null) {
+            throw new AttributeNotFoundException(attribute);
+        }
+        return value;
+    }
+
+    @Override
+    public AttributeList getAttributes(String[] names) {
+        Map<String, Object> attributes = attributes();
+        AttributeList list = new AttributeList();
+        for (String name : names) {
+            Object value = DUMP.equals(name) ? registry.dump() : attributes.get(name);
+            if (value != null) {
+                list.add(new Attribute(name, value));
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+        throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+    }
+
+    @Override
+    public AttributeList setAttributes(AttributeList attributes) {
+        return new AttributeList();
+    }
+
+    @Override
+    public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+        if (RESET.equals(actionName)) {
+            registry.reset();
+            return null;
+        }
+        throw new ReflectionException(new NoSuchMethodException(actionName));
+    }
+
+    @Override
+    public MBeanInfo getMBeanInfo() {
+        List<MBeanAttributeInfo> infos = new ArrayList<>();
+        infos.add(new MBeanAttributeInfo(DUMP, String.class.getName(), "Text dump of all metrics", true, false, false));
+        attributes().forEach((name, value) -> infos.add(new MBeanAttributeInfo(name, value.getClass().getName(),
+                name, true, false, false)));
+        MBeanOperationInfo reset = new MBeanOperationInfo(RESET, "Reset timers, counters and Hibernate statistics",
+                null, "void", MBeanOperationInfo.ACTION);
+        return new MBeanInfo(MetricsRegistry.class.getName(), "P2P service and DAO metrics",
+                infos.toArray(MBeanAttributeInfo[]::new), null, new MBeanOperationInfo[]{reset}, null);
+    }
+
+    private Map<String, Object> attributes() {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        registry.timerSnapshots().forEach((name, snapshot) -> {
+            attributes.put(name + ".count", snapshot.count());
+            attributes.put(name + ".meanMillis", snapshot.mean().toNanos() / 1_000_000.0);
+            attributes.put(name + ".p50Millis", snapshot.p50().toNanos() / 1_000_000.0);
+            attributes.put(name + ".p99Millis", snapshot.p99().toNanos() / 1_000_000.0);
+            attributes.put(name + ".maxMillis", snapshot.max().toNanos() / 1_000_000.0);
+        });
+        attributes.putAll(registry.counterValues());
+        attributes.putAll(registry.gaugeValues());
+        return attributes;
+    }
+}
@@ -0,0 +1,209 @@
+package org.example.metrics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+ * Timers, counters and gauges for the service and DAO hot paths. A disabled registry hands out a shared
+ * no-op sample and never reads the clock, so instrumented code costs a field read and a branch.
+ */
+@Slf4j
+public class MetricsRegistry {
+
+    private static final MetricsRegistry DISABLED = new MetricsRegistry(false);
+
+    private final boolean enabled;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<Number>> gauges = new ConcurrentHashMap<>();
+    private volatile Statistics statistics;
+    private ObjectName objectName;
+
+    public MetricsRegistry(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static MetricsRegistry disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Sample start(String timerName) {
+        if (!enabled) {
+            return Sample.NOOP;
+        }
+        return new Sample(timer(timerName), System.nanoTime());
+    }
+
+    public <T> T time(String timerName, Supplier<T> work) {
+        if (!enabled) {
+            return work.get();
+        }
+        Timer timer = timer(timerName);
+        long startNanos = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            timer.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    public void time(String timerName, Runnable work) {
+        time(timerName, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public Timer timer(String name) {
+        return timers.computeIfAbsent(name, Timer::new);
+    }
+
+    public void increment(String counterName, long delta) {
+        if (enabled) {
+            counters.computeIfAbsent(counterName, name -> new LongAdder()).add(delta);
+        }
+    }
+
+    public void gauge(String name, Supplier<Number> value) {
+        if (enabled) {
+            gauges.put(name, value);
+        }
+    }
+
+    public void bindHibernateStatistics(SessionFactory sessionFactory) {
+        if (!enabled) {
+            return;
+        }
+        Statistics statistics = sessionFactory.getStatistics();
+        gauge("hibernate.sessions.opened", statistics::getSessionOpenCount);
+        gauge("hibernate.sessions.closed", statistics::getSessionCloseCount);
+        gauge("hibernate.transactions.total", statistics::getTransactionCount);
+        gauge("hibernate.transactions.successful", statistics::getSuccessfulTransactionCount);
+        gauge("hibernate.statements.prepared", statistics::getPrepareStatementCount);
+        gauge("hibernate.queries.executed", statistics::getQueryExecutionCount);
+        gauge("hibernate.queries.max-time-ms", statistics::getQueryExecutionMaxTime);
+        gauge("hibernate.entities.loaded", statistics::getEntityLoadCount);
+        gauge("hibernate.entities.fetched", statistics::getEntityFetchCount);
+        gauge("hibernate.collections.fetched", statistics::getCollectionFetchCount);
+        gauge("hibernate.second-level-cache.hits", statistics::getSecondLevelCacheHitCount);
+        gauge("hibernate.second-level-cache.misses", statistics::getSecondLevelCacheMissCount);
+        gauge("hibernate.query-cache.hits", statistics::getQueryCacheHitCount);
+        gauge("hibernate.query-cache.misses", statistics::getQueryCacheMissCount);
+        this.statistics = statistics;
+    }
+
+    public Map<String, Timer.Snapshot> timerSnapshots() {
+        Map<String, Timer.Snapshot> snapshots = new TreeMap<>();
+        timers.forEach((name, timer) -> snapshots.put(name, timer.snapshot()));
+        return snapshots;
+    }
+
+    public Map<String, Long> counterValues() {
+        Map<String, Long> values = new TreeMap<>();
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+        return values;
+    }
+
+    public Map<String, Number> gaugeValues() {
+        Map<String, Number> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> {
+            Number value = gauge.get();
+            if (value != null) {
+                values.put(name, value);
+            }
+        });
+        return values;
+    }
+
+    public String dump() {
+        StringBuilder out = new StringBuilder();
+        timerSnapshots().values().forEach(snapshot -> out.append(String.format(Locale.ROOT,
+                "timer %s count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms%n",
+                snapshot.name(), snapshot.count(), millis(snapshot.mean().toNanos()),
+                millis(snapshot.p50().toNanos()), millis(snapshot.p99().toNanos()), millis(snapshot.max().toNanos()))));
+        counterValues().forEach((name, value) -> out.append("counter ").append(name).append('=').append(value)
+                .append(System.lineSeparator()));
+        gaugeValues().forEach((name, value) -> out.append("gauge ").append(name).append('=').append(value)
+                .append(System.lineSeparator()));
+        Statistics stats = statistics;
+        if (stats != null && stats.getQueryExecutionMaxTimeQueryString() != null) {
+            out.append("slowest query ").append(stats.getQueryExecutionMaxTime()).append("ms: ")
+                    .append(stats.getQueryExecutionMaxTimeQueryString()).append(System.lineSeparator());
+        }
+        return out.toString();
+    }
+
+    public void reset() {
+        timers.values().forEach(Timer::reset);
+        counters.values().forEach(LongAdder::reset);
+        Statistics stats = statistics;
+        if (stats != null) {
+            stats.clear();
+        }
+    }
+
+    public synchronized void registerMBean(String name) {
+        if (!enabled || objectName != null) {
+            return;
+        }
+        try {
+            ObjectName candidate = new ObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(this), candidate);
+            objectName = candidate;
+        } catch (JMException e) {
+            logger.warn("Could not register metrics MBean {}", name, e);
+        }
+    }
+
+    public synchronized void unregisterMBean() {
+        if (objectName == null) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(objectName);
+        } catch (JMException e) {
+            logger.warn("Could not unregister metrics MBean {}", objectName, e);
+        }
+        objectName = null;
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    public static final class Sample implements AutoCloseable {
+        private static final Sample NOOP = new Sample(null, 0);
+
+        private final Timer timer;
+        private final long startNanos;
+
+        private Sample(Timer timer, long startNanos) {
+            this.timer = timer;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void close() {
+            if (timer != null) {
+                timer.record(System.nanoTime() - startNanos);
+            }
+        }
+    }
+}
@@ -3,6 +3,9 @@ package org.example.model;
 import jakarta.persistence.*;
 import lombok.*;
 import org.example.constants.LoanStatus;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.proxy.HibernateProxy;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -12,13 +15,24 @@ import java.util.List;
 @NoArgsConstructor
 @Builder
 @Getter
-@ToString
-@EqualsAndHashCode
+@ToString(onlyExplicitlyIncluded = true)
 @Entity
-@Table(name = "loans", schema = "public")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@NamedEntityGraph(name = Loan.WITH_PAYMENTS, attributeNodes = @NamedAttributeNode("payments"))
+@Table(name = "loans", schema = "public", indexes = {
+        @Index(name = "idx_loans_creditor_status_start", columnList = "creditor_id, status, start_date"),
+        @Index(name = "idx_loans_debtor_status", columnList = "debtor_id, status"),
+        @Index(name = "idx_loans_status_end_date", columnList = "status, end_date"),
+        @Index(name = "idx_loans_start_date_status", columnList = "start_date, status")
+})
 public class Loan {
+    public static final String WITH_PAYMENTS = "Loan.payments";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loans_seq")
+    @SequenceGenerator(name = "loans_seq", sequenceName = "loans_seq", allocationSize = 50)
+    @ToString.Include
     private Long id;
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "creditor_id", nullable = false)
@@ -26,18 +40,41 @@ public class Loan {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "debtor_id", nullable = false)
     private User debtor;
+    @ToString.Include
     private BigDecimal amount;
     @Column(name = "interest_rate")
+    @ToString.Include
     private BigDecimal interestRate;
     @Column(name = "start_date")
+    @ToString.Include
     private LocalDate startDate;
     @Column(name = "end_date")
     @Setter
+    @ToString.Include
     private LocalDate endDate;
     @Enumerated(EnumType.STRING)
+    @ToString.Include
     private LoanStatus status;
+    @Version
+    private Long version;
+    @Column(name = "outstanding_principal")
+    @Setter
+    private BigDecimal outstandingPrincipal;
+    @Column(name = "outstanding_total")
+    @Setter
+    private BigDecimal outstandingTotal;
+    @Column(name = "paid_count")
+    @Setter
+    private int paidCount;
+    @Column(name = "last_paid_date")
     @Setter
-    @OneToMany(mappedBy = "loan", fetch = FetchType.LAZY)
+    private LocalDate lastPaidDate;
+    @Column(name = "next_due_date")
+    @Setter
+    private LocalDate nextDueDate;
+    @Setter
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+    @OneToMany(mappedBy = "loan", fetch = FetchType.LAZY, cascade = CascadeType.PERSIST)
     private List<Payment> payments;
 
     public void setStatus(LoanStatus status) {
@@ -46,4 +83,26 @@ public class Loan {
         }
         this.status = status;
     }
+
+    @Override
+    public final boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || effectiveClass(this) != effectiveClass(o)) {
+            return false;
+        }
+        return getId() != null && getId().equals(((Loan) o).getId());
+    }
+
+    @Override
+    public final int hashCode() {
+        return effectiveClass(this).hashCode();
+    }
+
+    private static Class<?> effectiveClass(Object entity) {
+        return entity instanceof HibernateProxy proxy
+                ? proxy.getHibernateLazyInitializer().getPersistentClass()
+                : entity.getClass();
+    }
 }
@@ -3,28 +3,68 @@ package org.example.model;
 import jakarta.persistence.*;
 import lombok.*;
 import org.example.constants.PaymentType;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.proxy.HibernateProxy;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Data
+@ToString(onlyExplicitlyIncluded = true)
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Builder
-@Table(name = "payments", schema = "public")
+@Table(name = "payments", schema = "public", indexes = {
+        @Index(name = "idx_payments_loan_type", columnList = "loan_id, type"),
+        @Index(name = "idx_payments_type_due_date", columnList = "type, dueDate"),
+        @Index(name = "idx_payments_type_paid_date", columnList = "type, paidDate")
+})
 public class Payment {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payments_seq")
+    @SequenceGenerator(name = "payments_seq", sequenceName = "payments_seq", allocationSize = 50)
+    @ToString.Include
     private Long id;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "loan_id", nullable = false)
     private Loan loan;
+    @ToString.Include
     private LocalDate dueDate;
     @Setter
+    @ToString.Include
     private LocalDate paidDate;
+    @ToString.Include
     private BigDecimal amount;
     @Setter
     @Enumerated(EnumType.STRING)
+    @ToString.Include
     private PaymentType type;
+    @Version
+    private Long version;
+
+    @Override
+    public final boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || effectiveClass(this) != effectiveClass(o)) {
+            return false;
+        }
+        return getId() != null && getId().equals(((Payment) o).getId());
+    }
+
+    @Override
+    public final int hashCode() {
+        return effectiveClass(this).hashCode();
+    }
+
+    private static Class<?> effectiveClass(Object entity) {
+        return entity instanceof HibernateProxy proxy
+                ? proxy.getHibernateLazyInitializer().getPersistentClass()
+                : entity.getClass();
+    }
 }
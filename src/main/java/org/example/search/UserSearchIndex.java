@@ -0,0 +1,202 @@
+package org.example.search;
+
+import org.example.model.User;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/*
+ * Prefix index over user names, email and phone. Tokens live in a sorted map, so every token starting
+ * with a query term is one range scan. The term with the fewest postings drives the scan, the remaining
+ * terms are checked against each candidate's own tokens, and the candidate cap only applies to users that
+ * matched every term, so a query never touches the database and a rare term never loses its match.
+ * Writers are serialized so an emptied posting set can be dropped without racing a concurrent add.
+ */
+public class UserSearchIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int EMAIL_WEIGHT = 2;
+    private static final int PHONE_WEIGHT = 1;
+    private static final int NATIONAL_PHONE_DIGITS = 10;
+
+    private final int maxCandidates;
+    private final NavigableMap<String, Set<Long>> postings = new ConcurrentSkipListMap<>();
+    private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+
+    public UserSearchIndex(int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    public synchronized void index(User user) {
+        if (user.getId() == null) {
+            return;
+        }
+        Document document = Document.of(user);
+        Document previous = documents.put(user.getId(), document);
+        if (previous != null) {
+            unpost(previous, user.getId());
+        }
+        for (Token token : document.tokens()) {
+            postings.computeIfAbsent(token.text(), text -> ConcurrentHashMap.newKeySet()).add(user.getId());
+        }
+    }
+
+    public synchronized void remove(Long userId) {
+        Document previous = documents.remove(userId);
+        if (previous != null) {
+            unpost(previous, userId);
+        }
+    }
+
+    private void unpost(Document document, Long userId) {
+        for (Token token : document.tokens()) {
+            Set<Long> ids = postings.get(token.text());
+            if (ids != null && ids.remove(userId) && ids.isEmpty()) {
+                postings.remove(token.text(), ids);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        documents.clear();
+        postings.clear();
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    int postingCount() {
+        return postings.size();
+    }
+
+    public List<Hit> search(String query, int limit) {
+        List<String> terms = terms(query);
+        if (terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Collection<Set<Long>> driver = null;
+        long driverSize = Long.MAX_VALUE;
+        for (String term : terms) {
+            Collection<Set<Long>> range = postings.subMap(term, true, term + Character.MAX_VALUE, false).values();
+            long size = 0;
+            for (Set<Long> ids : range) {
+                size += ids.size();
+                if (size >= driverSize) {
+                    break;
+                }
+            }
+            if (size < driverSize) {
+                driver = range;
+                driverSize = size;
+            }
+        }
+
+        Set<Long> seen = new HashSet<>();
+        List<Hit> hits = new ArrayList<>();
+        scan:
+        for (Set<Long> ids : driver) {
+            for (Long id : ids) {
+                Document document = documents.get(id);
+                if (document == null || !seen.add(id)) {
+                    continue;
+                }
+                int score = document.score(terms);
+                if (score > 0) {
+                    hits.add(new Hit(id, document.firstName(), document.lastName(), document.email(),
+                            document.phoneNumber(), score));
+                    if (hits.size() >= maxCandidates) {
+                        break scan;
+                    }
+                }
+            }
+        }
+        hits.sort(Comparator.comparingInt(Hit::score).reversed().thenComparing(Hit::userId));
+        return hits.size() > limit ? List.copyOf(hits.subList(0, limit)) : hits;
+    }
+
+    static List<String> terms(String query) {
+        if (query == null) {
+            return List.of();
+        }
+        List<String> terms = new ArrayList<>();
+        for (String part : query.toLowerCase(Locale.ROOT).split("[\\s,;]+")) {
+            String digits = part.replaceAll("\\D", "");
+            if (!digits.isEmpty() && digits.length() * 2 >= part.length()) {
+                terms.add(digits);
+            } else if (!part.isEmpty()) {
+                terms.add(part);
+            }
+        }
+        return terms;
+    }
+
+    public record Hit(Long userId, String firstName, String lastName, String email, String phoneNumber, int score) {
+    }
+
+    private record Token(String text, int weight) {
+    }
+
+    private record Document(String firstName, String lastName, String email, String phoneNumber, List<Token> tokens) {
+
+        static Document of(User user) {
+            Set<Token> tokens = new HashSet<>();
+            addWords(tokens, user.getFirstName(), "[\\s\\-']+", NAME_WEIGHT);
+            addWords(tokens, user.getLastName(), "[\\s\\-']+", NAME_WEIGHT);
+            if (user.getEmail() != null && !user.getEmail().isBlank()) {
+                String email = user.getEmail().trim().toLowerCase(Locale.ROOT);
+                tokens.add(new Token(email, EMAIL_WEIGHT));
+                addWords(tokens, email, "[@._+\\-]+", EMAIL_WEIGHT);
+            }
+            if (user.getPhoneNumber() != null) {
+                String digits = user.getPhoneNumber().replaceAll("\\D", "");
+                if (!digits.isEmpty()) {
+                    tokens.add(new Token(digits, PHONE_WEIGHT));
+                }
+                if (digits.length() > NATIONAL_PHONE_DIGITS) {
+                    tokens.add(new Token(digits.substring(digits.length() - NATIONAL_PHONE_DIGITS), PHONE_WEIGHT));
+                }
+            }
+            return new Document(user.getFirstName(), user.getLastName(), user.getEmail(), user.getPhoneNumber(),
+                    List.copyOf(tokens));
+        }
+
+        private static void addWords(Set<Token> tokens, String value, String separators, int weight) {
+            if (value == null) {
+                return;
+            }
+            for (String word : value.toLowerCase(Locale.ROOT).split(separators)) {
+                if (!word.isEmpty()) {
+                    tokens.add(new Token(word, weight));
+                }
+            }
+        }
+
+        int score(List<String> terms) {
+            int total = 0;
+            for (String term : terms) {
+                int best = 0;
+                for (Token token : tokens) {
+                    if (token.text().startsWith(term)) {
+                        int match = token.text().length() == term.length() ? 2 : 1;
+                        best = Math.max(best, match * token.weight());
+                    }
+                }
+                if (best == 0) {
+                    return 0;
+                }
+                total += best;
+            }
+            return total;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.service;
+
+import org.example.dao.AnalyticsDAO;
+import org.example.dto.CashFlowBucket;
+import org.example.dto.CreditorOutstanding;
+import org.example.dto.InterestEarned;
+import org.example.dto.MonthlyDefaultRate;
+import org.example.metrics.MetricsRegistry;
+import org.example.model.User;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+public class AnalyticsService {
+
+    private final AnalyticsDAO analyticsDAO;
+    private final MetricsRegistry metrics;
+
+    public AnalyticsService(AnalyticsDAO analyticsDAO) {
+        this(analyticsDAO, MetricsRegistry.disabled());
+    }
+
+    public AnalyticsService(AnalyticsDAO analyticsDAO, MetricsRegistry metrics) {
+        this.analyticsDAO = analyticsDAO;
+        this.metrics = metrics;
+    }
+
+    public List<CreditorOutstanding> getOutstandingByCreditor() {
+        return metrics.time("service.analytics.getOutstandingByCreditor", () -> analyticsDAO.outstandingByCreditor());
+    }
+
+    public CreditorOutstanding getOutstandingForCreditor(User creditor) {
+        return metrics.time("service.analytics.getOutstandingForCreditor", () -> {
+            if (creditor == null) {
+                throw new IllegalArgumentException("Creditor Outstanding: Creditor cannot be null");
+            }
+            CreditorOutstanding outstanding = analyticsDAO.outstandingForCreditor(creditor.getId());
+            return outstanding != null ? outstanding : CreditorOutstanding.empty(creditor.getId());
+        });
+    }
+
+    public List<MonthlyDefaultRate> getDefaultRateByMonth(YearMonth from, YearMonth to) {
+        return metrics.time("service.analytics.getDefaultRateByMonth", () -> {
+            checkMonths("Default Rate", from, to);
+            return analyticsDAO.defaultRateByStartMonth(from.atDay(1), to.plusMonths(1).atDay(1));
+        });
+    }
+
+    public List<CashFlowBucket> getExpectedCashFlow(YearMonth from, YearMonth to) {
+        return metrics.time("service.analytics.getExpectedCashFlow", () -> {
+            checkMonths("Expected Cash Flow", from, to);
+            return analyticsDAO.expectedCashFlowByDueMonth(from.atDay(1), to.plusMonths(1).atDay(1));
+        });
+    }
+
+    public List<InterestEarned> getInterestEarnedByCreditor(LocalDate from, LocalDate to) {
+        return metrics.time("service.analytics.getInterestEarnedByCreditor", () -> {
+            checkDates("Interest Earned", from, to);
+            return analyticsDAO.interestEarnedByCreditor(from, to.plusDays(1));
+        });
+    }
+
+    public InterestEarned getInterestEarned(LocalDate from, LocalDate to) {
+        return getInterestEarnedByCreditor(from, to).stream()
+                .reduce(new InterestEarned(null, 0, BigDecimal.ZERO, BigDecimal.ZERO), InterestEarned::plus);
+    }
+
+    private static void checkMonths(String operation, YearMonth from, YearMonth to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException(operation + ": Invalid month range");
+        }
+    }
+
+    private static void checkDates(String operation, LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException(operation + ": Invalid date range");
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package org.example.service;
+
+import org.example.config.Settings;
+import org.example.constants.PaymentType;
+import org.example.dto.EligibilitySnapshot;
+import org.example.dto.LoanDTO;
+import org.example.model.Loan;
+import org.example.model.Payment;
+import org.example.model.User;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+/*
+ * Runs service calls on virtual threads so independent lookups can be fanned out and joined. Every call
+ * may hold a JDBC connection, so a semaphore caps how many run at once; the rest wait on their (cheap)
+ * virtual thread instead of queueing inside the pool. MySQL Connector/J 8.0 does its socket I/O inside
+ * synchronized blocks, which pins the virtual thread to its carrier on JDK 21, so by default the cap is
+ * also no higher than the number of carriers (available processors); otherwise blocked JDBC calls could
+ * occupy every carrier and starve all other virtual threads.
+ */
+public class AsyncServices implements AutoCloseable {
+
+    private final LoanService loanService;
+    private final PaymentService paymentService;
+    private final UserService userService;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore connections;
+
+    public AsyncServices(LoanService loanService, PaymentService paymentService, UserService userService) {
+        this(loanService, paymentService, userService,
+                Settings.getInt("p2p.async.max-concurrent-calls", "P2P_ASYNC_MAX_CONCURRENT_CALLS",
+                        Math.min(Settings.getInt("hibernate.hikari.maximumPoolSize", "DB_POOL_MAX_SIZE", 10),
+                                Runtime.getRuntime().availableProcessors())));
+    }
+
+    public AsyncServices(LoanService loanService, PaymentService paymentService, UserService userService,
+                         int maxConcurrentCalls) {
+        if (maxConcurrentCalls <= 0) {
+            throw new IllegalArgumentException("Max concurrent calls must be positive");
+        }
+        this.loanService = loanService;
+        this.paymentService = paymentService;
+        this.userService = userService;
+        this.connections = new Semaphore(maxConcurrentCalls, true);
+    }
+
+    public CompletableFuture<User> getUserById(Long id) {
+        return submit(() -> userService.getUserById(id));
+    }
+
+    public CompletableFuture<List<User>> getUsersByKeyword(String keyword) {
+        return submit(() -> userService.getUsersByKeyword(keyword));
+    }
+
+    public CompletableFuture<EligibilitySnapshot> getDebtorExposure(User debtor) {
+        return submit(() -> loanService.getDebtorExposure(debtor));
+    }
+
+    public CompletableFuture<Boolean> canDebtorTakeNewLoan(User debtor) {
+        return submit(() -> loanService.canDebtorTakeNewLoan(debtor));
+    }
+
+    public CompletableFuture<List<Loan>> getActiveLoansForDebtor(User debtor) {
+        return submit(() -> loanService.getActiveLoansForDebtor(debtor));
+    }
+
+    public CompletableFuture<List<Loan>> getActiveLoansForCreditorInThisYear(User creditor) {
+        return submit(() -> loanService.getActiveLoansForCreditorInThisYear(creditor));
+    }
+
+    public CompletableFuture<Loan> createLoan(LoanDTO loanDTO) {
+        return submit(() -> loanService.createLoan(loanDTO, paymentService));
+    }
+
+    public CompletableFuture<List<Payment>> getPaymentsByLoanIdAndType(Loan loan, PaymentType paymentType) {
+        return submit(() -> paymentService.getPaymentsByLoanIdAndType(loan, paymentType));
+    }
+
+    public CompletableFuture<Void> paidPayment(Payment payment) {
+        return submit(() -> {
+            paymentService.paidPayment(payment);
+            return null;
+        });
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> call) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                connections.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+            try {
+                return call.get();
+            } finally {
+                connections.release();
+            }
+        }, executor);
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.Settings;
+import org.example.dao.LoanDAO;
+import org.example.dto.BalanceCheckReport;
+import org.example.dto.LoanBalance;
+import org.example.lock.LoanLocks;
+import org.example.metrics.MetricsRegistry;
+import org.example.model.Loan;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Compares the running balances stored on every loan with the ones derived from its payments, a page of
+ * loans at a time. With repair on, a mismatch is rebuilt under the loan's lock from a fresh read and only
+ * written if the loan's version is still the one read, so a concurrent payment is never overwritten; such
+ * loans, including those changed by writers that bypass the locks (ingestion, bulk repricing), are
+ * reported as skipped and picked up by the next run.
+ */
+@Slf4j
+public class LoanBalanceChecker {
+
+    private final LoanDAO loanDAO;
+    private final LoanLocks loanLocks;
+    private final MetricsRegistry metrics;
+    private final int batchSize;
+    private final int maxReportedIds;
+
+    public LoanBalanceChecker(LoanDAO loanDAO, LoanLocks loanLocks, MetricsRegistry metrics) {
+        this(loanDAO, loanLocks, metrics,
+                Settings.getInt("p2p.balance-check.batch-size", "P2P_BALANCE_CHECK_BATCH_SIZE", 200),
+                Settings.getInt("p2p.balance-check.max-reported", "P2P_BALANCE_CHECK_MAX_REPORTED", 1000));
+    }
+
+    public LoanBalanceChecker(LoanDAO loanDAO, LoanLocks loanLocks, int batchSize, int maxReportedIds) {
+        this(loanDAO, loanLocks, MetricsRegistry.disabled(), batchSize, maxReportedIds);
+    }
+
+    public LoanBalanceChecker(LoanDAO loanDAO, LoanLocks loanLocks, MetricsRegistry metrics, int batchSize,
+                              int maxReportedIds) {
+        if (batchSize <= 0 || maxReportedIds < 0) {
+            throw new IllegalArgumentException("Batch size must be positive and max reported ids not negative");
+        }
+        this.loanDAO = loanDAO;
+        this.loanLocks = loanLocks;
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        this.maxReportedIds = maxReportedIds;
+    }
+
+    public BalanceCheckReport check(boolean repair) {
+        return metrics.time("service.balance-check.check", () -> checkAll(repair));
+    }
+
+    private BalanceCheckReport checkAll(boolean repair) {
+        long startedAt = System.nanoTime();
+        int loans = 0;
+        int mismatched = 0;
+        int repaired = 0;
+        int skipped = 0;
+        List<Long> mismatchedIds = new ArrayList<>();
+        Long afterId = null;
+        List<Loan> page;
+        do {
+            page = loanDAO.findPage(afterId, batchSize);
+            if (page.isEmpty()) {
+                break;
+            }
+            List<Long> ids = page.stream().map(Loan::getId).toList();
+            afterId = ids.get(ids.size() - 1);
+            for (Loan loan : loanDAO.findWithPayments(ids)) {
+                loans++;
+                LoanBalance expected;
+                try {
+                    expected = LoanBalances.compute(loan, loan.getPayments());
+                } catch (ArithmeticException e) {
+                    logger.warn("Cannot derive balances of loan {}", loan.getId(), e);
+                    continue;
+                }
+                if (expected.sameAs(LoanBalance.of(loan))) {
+                    continue;
+                }
+                mismatched++;
+                if (mismatchedIds.size() < maxReportedIds) {
+                    mismatchedIds.add(loan.getId());
+                }
+                if (repair) {
+                    if (rebuild(loan.getId())) {
+                        repaired++;
+                    } else {
+                        skipped++;
+                    }
+                }
+            }
+        } while (page.size() == batchSize);
+
+        BalanceCheckReport report = new BalanceCheckReport(loans, mismatched, repaired, skipped,
+                List.copyOf(mismatchedIds), Duration.ofNanos(System.nanoTime() - startedAt));
+        if (mismatched > 0) {
+            logger.warn("Balance check: {} of {} loans mismatched, {} repaired, {} skipped", mismatched, loans,
+                    repaired, skipped);
+        } else {
+            logger.info("Balance check: {} loans consistent", loans);
+        }
+        return report;
+    }
+
+    private boolean rebuild(Long loanId) {
+        try {
+            return loanLocks.withLock(loanId, () -> {
+                Loan loan = loanDAO.findByIdWithPayments(loanId);
+                if (loan == null) {
+                    return false;
+                }
+                return loanDAO.setBalance(loanId, loan.getVersion(), LoanBalances.compute(loan, loan.getPayments()));
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Rebuilding balances of loan {} failed", loanId, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.service;
+
+import org.example.constants.PaymentType;
+import org.example.dto.LoanBalance;
+import org.example.model.Loan;
+import org.example.model.Payment;
+import org.hibernate.Hibernate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+
+/*
+ * Running balances kept on the loan row. compute() derives them from the payments and is the reference the
+ * incremental updates and the consistency check are measured against; outstanding principal follows the
+ * repricing rule (amount minus one monthly principal per paid installment). Loans whose balances were
+ * never filled in are not maintained, and readers fall back to the payments for them.
+ */
+public final class LoanBalances {
+
+    private LoanBalances() {
+    }
+
+    public static LoanBalance compute(Loan loan, Collection<Payment> payments) {
+        int paidCount = 0;
+        LocalDate lastPaidDate = null;
+        LocalDate nextDueDate = null;
+        BigDecimal outstandingTotal = BigDecimal.ZERO.setScale(MoneyKernel.CENT_SCALE);
+        for (Payment payment : payments) {
+            if (payment.getType() == PaymentType.PAID) {
+                paidCount++;
+                if (payment.getPaidDate() != null && (lastPaidDate == null || payment.getPaidDate().isAfter(lastPaidDate))) {
+                    lastPaidDate = payment.getPaidDate();
+                }
+            } else if (payment.getType() == PaymentType.PENDING) {
+                outstandingTotal = outstandingTotal.add(payment.getAmount());
+                if (nextDueDate == null || payment.getDueDate().isBefore(nextDueDate)) {
+                    nextDueDate = payment.getDueDate();
+                }
+            }
+        }
+        BigDecimal outstandingPrincipal = loan.getAmount().subtract(monthlyPrincipal(loan).multiply(BigDecimal.valueOf(paidCount)));
+        return new LoanBalance(outstandingPrincipal, outstandingTotal, paidCount, lastPaidDate, nextDueDate);
+    }
+
+    public static void apply(Loan loan, LoanBalance balance) {
+        loan.setOutstandingPrincipal(balance.outstandingPrincipal());
+        loan.setOutstandingTotal(balance.outstandingTotal());
+        loan.setPaidCount(balance.paidCount());
+        loan.setLastPaidDate(balance.lastPaidDate());
+        loan.setNextDueDate(balance.nextDueDate());
+    }
+
+    public static boolean isMaintained(Loan loan) {
+        return loan != null && Hibernate.isInitialized(loan)
+                && loan.getOutstandingPrincipal() != null && loan.getOutstandingTotal() != null;
+    }
+
+    public static BigDecimal monthlyPrincipal(Loan loan) {
+        int months = (int) ChronoUnit.MONTHS.between(loan.getStartDate(), loan.getEndDate());
+        return MoneyKernel.toDecimal(MoneyKernel.monthlyPrincipalCents(loan.getAmount(), months));
+    }
+
+    public static BigDecimal pendingTotal(Loan loan) {
+        return loan.getPayments().stream()
+                .filter(payment -> payment.getType() == PaymentType.PENDING)
+                .map(Payment::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    // Mirrors LoanDAO.recordPaidPayments on an in-memory copy; the next due date is only known with the payments.
+    static void recordPaidPayment(Loan loan, Payment payment, BigDecimal monthlyPrincipal) {
+        loan.setPaidCount(loan.getPaidCount() + 1);
+        loan.setOutstandingTotal(loan.getOutstandingTotal().subtract(payment.getAmount()));
+        loan.setOutstandingPrincipal(loan.getOutstandingPrincipal().subtract(monthlyPrincipal));
+        if (loan.getLastPaidDate() == null || payment.getPaidDate().isAfter(loan.getLastPaidDate())) {
+            loan.setLastPaidDate(payment.getPaidDate());
+        }
+        if (loan.getPayments() != null && Hibernate.isInitialized(loan.getPayments())) {
+            loan.setNextDueDate(loan.getPayments().stream()
+                    .filter(other -> other.getType() == PaymentType.PENDING)
+                    .map(Payment::getDueDate)
+                    .min(LocalDate::compareTo)
+                    .orElse(null));
+        }
+    }
+}
@@ -1,112 +1,231 @@
 package org.example.service;
 
+import jakarta.persistence.OptimisticLockException;
 import lombok.extern.slf4j.Slf4j;
+import org.example.cache.DebtorExposureCache;
+import org.example.config.Settings;
 import org.example.constants.LoanStatus;
 import org.example.constants.PaymentType;
 import org.example.dao.LoanDAO;
+import org.example.dao.TransactionTemplate;
+import org.example.dto.EligibilitySnapshot;
+import org.example.dto.LoanBalance;
 import org.example.dto.LoanDTO;
+import org.example.dto.OverdueSweepResult;
+import org.example.lock.LoanLocks;
+import org.example.metrics.MetricsRegistry;
 import org.example.model.Loan;
 import org.example.model.Payment;
 import org.example.model.User;
+import org.hibernate.Hibernate;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAdjusters;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Slf4j
 public class LoanService {
 
+    private static final int OVERDUE_SWEEP_CHUNK_SIZE =
+            Settings.getInt("p2p.overdue-sweep.chunk-size", "P2P_OVERDUE_SWEEP_CHUNK_SIZE", 1000);
+
     private final LoanDAO loanDAO;
+    private final BigDecimal maxActiveDebt;
+    private final DebtorExposureCache exposureCache;
+    private final TransactionTemplate transactions;
+    private final OptimisticRetry retry;
+    private final LoanLocks loanLocks;
+    private final MetricsRegistry metrics;
 
     public LoanService(LoanDAO loanDAO) {
+        this(loanDAO, TransactionTemplate.none(), MetricsRegistry.disabled());
+    }
+
+    public LoanService(LoanDAO loanDAO, TransactionTemplate transactions, MetricsRegistry metrics) {
+        this(loanDAO,
+                Settings.getDecimal("p2p.loan.max-active-debt", "P2P_LOAN_MAX_ACTIVE_DEBT", BigDecimal.valueOf(50_000)),
+                new DebtorExposureCache(
+                        Settings.getInt("p2p.exposure-cache.max-entries", "P2P_EXPOSURE_CACHE_MAX_ENTRIES", 10_000),
+                        Settings.getDuration("p2p.exposure-cache.ttl", "P2P_EXPOSURE_CACHE_TTL", Duration.ofMinutes(5))),
+                transactions, metrics);
+    }
+
+    public LoanService(LoanDAO loanDAO, BigDecimal maxActiveDebt, DebtorExposureCache exposureCache) {
+        this(loanDAO, maxActiveDebt, exposureCache, TransactionTemplate.none(), MetricsRegistry.disabled());
+    }
+
+    public LoanService(LoanDAO loanDAO, BigDecimal maxActiveDebt, DebtorExposureCache exposureCache,
+                       TransactionTemplate transactions, MetricsRegistry metrics) {
         this.loanDAO = loanDAO;
+        this.maxActiveDebt = maxActiveDebt;
+        this.exposureCache = exposureCache;
+        this.transactions = transactions;
+        this.retry = new OptimisticRetry(transactions);
+        this.loanLocks = new LoanLocks(metrics);
+        this.metrics = metrics;
     }
 
     public Loan createLoan(LoanDTO loanDTO, PaymentService paymentService) {
-        if (!loanDTO.isValid()) {
-            throw new IllegalArgumentException("Invalid loan creation data");
-        }
-        if (!canDebtorTakeNewLoan(loanDTO.getDebtor())) {
-            throw new IllegalStateException("Debtor cannot take new loan");
-        }
-        Loan loan = Loan.builder()
-                .amount(loanDTO.getAmount())
-                .creditor(loanDTO.getCreditor())
-                .debtor(loanDTO.getDebtor())
-                .startDate(LocalDate.now())
-                .endDate(LocalDate.now().plusMonths(loanDTO.getTerm()))
-                .interestRate(loanDTO.getInterestRate())
-                .status(LoanStatus.ACTIVE)
-                .payments(new ArrayList<>())
-                .build();
-        loanDAO.save(loan);
-
-        List<Payment> schedule = paymentService.generateAndSaveSchedule(loan);
-        loan.setPayments(schedule);
+        return metrics.time("service.loan.createLoan", () -> {
+            if (!loanDTO.isValid()) {
+                throw new IllegalArgumentException("Invalid loan creation data");
+            }
+            if (!canDebtorTakeNewLoan(loanDTO.getDebtor())) {
+                throw new IllegalStateException("Debtor cannot take new loan");
+            }
+            Loan loan = Loan.builder()
+                    .amount(loanDTO.getAmount())
+                    .creditor(loanDTO.getCreditor())
+                    .debtor(loanDTO.getDebtor())
+                    .startDate(LocalDate.now())
+                    .endDate(LocalDate.now().plusMonths(loanDTO.getTerm()))
+                    .interestRate(loanDTO.getInterestRate())
+                    .status(LoanStatus.ACTIVE)
+                    .build();
+            loan.setPayments(paymentService.generateDifferentiatedSchedule(loan));
+            LoanBalances.apply(loan, LoanBalances.compute(loan, loan.getPayments()));
+            transactions.inTransaction(() -> loanDAO.save(loan));
+            exposureCache.adjust(loan.getDebtor().getId(), snapshot -> snapshot.withNewActiveLoan(loan.getAmount()));
 
-        return loan;
+            return loan;
+        });
     }
 
     public void updateLoanStatus(Loan loan, LoanStatus loanStatus) {
-        if (loan == null) {
-            throw new IllegalArgumentException("Update Loan: Invalid loan");
-        }
-        loan.setStatus(loanStatus);
-        if (loan.getStatus().equals(LoanStatus.REPAID)) {
-            loan.setEndDate(LocalDate.now());
-            logger.debug("Status and expired date were changed!");
-        }
-        loanDAO.update(loan);
-        logger.debug("Status was changed!");
+        metrics.time("service.loan.updateLoanStatus", () -> {
+            if (loan == null) {
+                throw new IllegalArgumentException("Update Loan: Invalid loan");
+            }
+            if (loan.getStatus() == LoanStatus.REPAID) {
+                throw new IllegalArgumentException("Update Loan: Loan is already repaid");
+            }
+            LocalDate endDate = loanStatus == LoanStatus.REPAID ? LocalDate.now() : null;
+            loanLocks.withLock(loan.getId(), () -> {
+                if (!loanDAO.compareAndSetStatus(loan.getId(), loan.getStatus(), loanStatus, endDate)) {
+                    throw new OptimisticLockException("Loan " + loan.getId() + " is no longer " + loan.getStatus());
+                }
+                loan.setStatus(loanStatus);
+                if (endDate != null) {
+                    loan.setEndDate(endDate);
+                }
+            });
+            if (loan.getDebtor() != null) {
+                exposureCache.invalidate(loan.getDebtor().getId());
+            }
+            logger.debug("Loan {} status changed to {}", loan.getId(), loanStatus);
+        });
     }
 
     public void closeLoan(Loan loan) {
-        if (loan == null) {
-            throw new IllegalArgumentException("Close Loan: Loan not found");
-        }
-        List<Payment> payments = loan.getPayments();
-        for (Payment payment : payments) {
-            if ((payment.getType().equals(PaymentType.PENDING))) {
-                logger.warn("Closing loan is impossible, because it has unpaid payment");
-                throw new IllegalStateException("Cannot close loan with pending payments");
+        metrics.time("service.loan.closeLoan", () -> {
+            if (loan == null) {
+                throw new IllegalArgumentException("Close Loan: Loan not found");
             }
-        }
-        updateLoanStatus(loan, LoanStatus.REPAID);
+            LocalDate endDate = LocalDate.now();
+            loanLocks.withLock(loan.getId(), () -> {
+                retry.run("closeLoan", () -> transactions.inTransaction(() -> {
+                    Loan current = withPayments(loan);
+                    for (Payment payment : current.getPayments()) {
+                        if ((payment.getType().equals(PaymentType.PENDING))) {
+                            logger.warn("Closing loan is impossible, because it has unpaid payment");
+                            throw new IllegalStateException("Cannot close loan with pending payments");
+                        }
+                    }
+                    if (current.getStatus() == LoanStatus.REPAID) {
+                        throw new IllegalArgumentException("Close Loan: Loan is already repaid");
+                    }
+                    if (!loanDAO.closeIfFullyPaid(loan.getId(), current.getStatus(), endDate)) {
+                        throw new OptimisticLockException("Loan " + loan.getId() + " changed while closing");
+                    }
+                }));
+                loan.setStatus(LoanStatus.REPAID);
+                loan.setEndDate(endDate);
+            });
+            if (loan.getDebtor() != null) {
+                exposureCache.invalidate(loan.getDebtor().getId());
+            }
+            logger.debug("Loan {} status changed to {}", loan.getId(), LoanStatus.REPAID);
+        });
     }
 
     public List<Loan> getActiveLoansForCreditorInThisYear(User creditor) {
-        if (creditor == null) {
-            throw new IllegalArgumentException("Active Loans In Year: Creditor cannot be null");
-        }
-        List<Loan> loansByCreditorId = loanDAO.getLoansByCreditorId(creditor.getId());
-        LocalDate startOfYear = LocalDate.now().with(TemporalAdjusters.firstDayOfYear());
-        return loansByCreditorId.stream()
-                .filter(loan -> loan.getStatus().equals(LoanStatus.ACTIVE) && loan.getStartDate().isAfter(startOfYear))
-                .collect(Collectors.toList());
+        return metrics.time("service.loan.getActiveLoansForCreditorInThisYear", () -> {
+            if (creditor == null) {
+                throw new IllegalArgumentException("Active Loans In Year: Creditor cannot be null");
+            }
+            LocalDate startOfYear = LocalDate.now().with(TemporalAdjusters.firstDayOfYear());
+            return loanDAO.getLoansByCreditorAndStatusStartedBetween(creditor.getId(), LoanStatus.ACTIVE,
+                    startOfYear, startOfYear.plusYears(1));
+        });
     }
 
     public List<Loan> getActiveLoansForDebtor(User debtor) {
-        if (debtor == null) {
-            throw new IllegalArgumentException("Active Loans In Year: Debtor cannot be null");
-        }
-        return loanDAO.getLoanByDebtorIdAndStatus(debtor.getId(), LoanStatus.ACTIVE);
+        return metrics.time("service.loan.getActiveLoansForDebtor", () -> {
+            if (debtor == null) {
+                throw new IllegalArgumentException("Active Loans In Year: Debtor cannot be null");
+            }
+            if (getExposure(debtor).activeLoans() == 0) {
+                return List.of();
+            }
+            return loanDAO.getLoanByDebtorIdAndStatus(debtor.getId(), LoanStatus.ACTIVE);
+        });
     }
 
     public BigDecimal calculateRemainingDebt(Loan loan) {
-        if (loan == null) {
-            throw new IllegalArgumentException("Calculate Remaining: Loan not found");
+        return metrics.time("service.loan.calculateRemainingDebt", () -> {
+            if (loan == null) {
+                throw new IllegalArgumentException("Calculate Remaining: Loan not found");
+            }
+            Loan current = initialized(loan);
+            if (LoanBalances.isMaintained(current)) {
+                return current.getOutstandingTotal();
+            }
+            return LoanBalances.pendingTotal(withPayments(current));
+        });
+    }
+
+    public Loan initialized(Loan loan) {
+        if (Hibernate.isInitialized(loan) || loan.getId() == null) {
+            return loan;
+        }
+        Loan loaded = loanDAO.findById(loan.getId());
+        if (loaded == null) {
+            throw new IllegalStateException("Loan with id " + loan.getId() + " not found");
+        }
+        return loaded;
+    }
+
+    public boolean updateBalance(Loan loan, LoanBalance balance) {
+        return loanDAO.setBalance(loan.getId(), loan.getVersion(), balance);
+    }
+
+    public void recordPaidPayments(Long loanId, int count, BigDecimal amount, BigDecimal principal, LocalDate paidDate) {
+        loanDAO.recordPaidPayments(loanId, count, amount, principal, paidDate);
+    }
+
+    public void adjustOutstandingTotal(Long loanId, BigDecimal delta) {
+        loanDAO.adjustOutstandingTotal(loanId, delta);
+    }
+
+    /*
+     * Inside a unit of work the loan is always read through the session, so the caller works on managed,
+     * current rows rather than on a detached copy that may already be stale.
+     */
+    public Loan withPayments(Loan loan) {
+        if (loan.getId() == null || !transactions.isActive() && Hibernate.isInitialized(loan)
+                && loan.getPayments() != null && Hibernate.isInitialized(loan.getPayments())) {
+            return loan;
         }
-        return loan.getPayments().stream()
-                .filter(payment -> payment.getType() == PaymentType.PENDING)
-                .map(Payment::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Loan loaded = loanDAO.findByIdWithPayments(loan.getId());
+        if (loaded == null) {
+            throw new IllegalStateException("Loan with id " + loan.getId() + " not found");
+        }
+        return loaded;
     }
 
     public BigDecimal processInterestAccrual(Loan loan, LocalDate startDate, LocalDate endDate, BigDecimal principal) {
@@ -117,54 +236,69 @@ public class LoanService {
             return BigDecimal.ZERO;
         }
         long daysSinceLastPayment = ChronoUnit.DAYS.between(startDate, endDate);
-        return principal
-                .multiply(loan.getInterestRate())
-                .multiply(BigDecimal.valueOf(daysSinceLastPayment))
-                .divide(BigDecimal.valueOf(365), RoundingMode.HALF_UP);
+        return MoneyKernel.interest(principal, loan.getInterestRate(), daysSinceLastPayment);
     }
 
     public boolean checkOverdueLoans() {
-        List<Loan> activeLoans = loanDAO.getAllLoansByStatus(LoanStatus.ACTIVE);
-        for (Loan loan : activeLoans) {
-            if (isOverdue(loan)) {
-                updateLoanStatus(loan, LoanStatus.DEFAULTED);
-                loanDAO.update(loan);
-                return true;
+        return metrics.time("service.loan.checkOverdueLoans", () -> sweepOverdueLoans().updatedCount() > 0);
+    }
+
+    public OverdueSweepResult sweepOverdueLoans() {
+        return metrics.time("service.loan.sweepOverdueLoans", () -> {
+            OverdueSweepResult result = loanDAO.markOverdueLoansDefaulted(LocalDate.now(), OVERDUE_SWEEP_CHUNK_SIZE);
+            if (result.updatedCount() > 0) {
+                exposureCache.invalidateAll();
+                logger.info("Overdue sweep: {} loans were marked as DEFAULTED", result.updatedCount());
             }
-        }
-        return false;
+            return result;
+        });
     }
 
     public boolean canDebtorTakeNewLoan(User debtor) {
-        if (debtor == null) {
-            throw new IllegalArgumentException("Can Debtor Take New Loan: Debtor cannot be null");
-        }
-        BigDecimal sumOfActiveLoans = getTotalDebtByDebtor(debtor);
-        if (sumOfActiveLoans.compareTo(BigDecimal.valueOf(50_000)) >= 0) {
-            return false;
-        } else if (!(loanDAO.getLoanByDebtorIdAndStatus(debtor.getId(), LoanStatus.DEFAULTED).isEmpty())) {
-            return false;
-        } else {
-            return true;
-        }
+        return metrics.time("service.loan.canDebtorTakeNewLoan", () -> {
+            if (debtor == null) {
+                throw new IllegalArgumentException("Can Debtor Take New Loan: Debtor cannot be null");
+            }
+            EligibilitySnapshot snapshot = getExposure(debtor);
+            return snapshot.activeDebt().compareTo(maxActiveDebt) < 0 && !snapshot.hasDefaultedLoans();
+        });
     }
 
-    public List<Loan> getUpcomingExpirations() {
-        return loanDAO.almostExpiredLoans().stream()
-                .sorted(Comparator.comparing(Loan::getEndDate))
-                .toList();
+    public EligibilitySnapshot getDebtorExposure(User debtor) {
+        return metrics.time("service.loan.getDebtorExposure", () -> {
+            if (debtor == null) {
+                throw new IllegalArgumentException("Debtor Exposure: Debtor cannot be null");
+            }
+            return getExposure(debtor);
+        });
     }
 
-    public List<Loan> getAllLoans() {
-        return loanDAO.findAll();
+    public LoanLocks getLoanLocks() {
+        return loanLocks;
     }
 
+    public DebtorExposureCache.Stats getExposureCacheStats() {
+        return exposureCache.getStats();
+    }
+
+    public List<Loan> getUpcomingExpirations() {
+        return metrics.time("service.loan.getUpcomingExpirations", () -> {
+            return loanDAO.almostExpiredLoans().stream()
+                    .sorted(Comparator.comparing(Loan::getEndDate))
+                    .toList();
+        });
+    }
 
-    private BigDecimal getTotalDebtByDebtor(User debtor) {
-        return loanDAO.sumOfLoansByDebtor(debtor.getId(), LoanStatus.ACTIVE);
+    public List<Long> getLoanIdsWithOverduePayments(Long afterId, int limit) {
+        return metrics.time("service.loan.getLoanIdsWithOverduePayments",
+                () -> loanDAO.getLoanIdsWithOverduePaymentsPage(LocalDate.now(), afterId, limit));
+    }
+
+    public List<Loan> getAllLoans() {
+        return metrics.time("service.loan.getAllLoans", () -> loanDAO.findAll());
     }
 
-    private boolean isOverdue(Loan loan) {
-        return loan.getEndDate().isBefore(LocalDate.now());
+    private EligibilitySnapshot getExposure(User debtor) {
+        return exposureCache.get(debtor.getId(), loanDAO::getEligibilitySnapshot);
     }
 }
@@ -0,0 +1,169 @@
+package org.example.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/*
+ * Schedule arithmetic on scaled longs. A decimal is carried as an unscaled long plus its scale, exactly
+ * like BigDecimal, and every rounding step mirrors the BigDecimal call it replaces (divide to cents with
+ * HALF_UP, interest divided by 365 at the principal + rate scale, total rounded to cents with HALF_UP).
+ * Inputs that do not fit a long fall back to BigDecimal, so results are identical for every input.
+ */
+public final class MoneyKernel {
+
+    public static final int CENT_SCALE = 2;
+
+    private static final long DAYS_IN_YEAR = 365;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+            10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L,
+            10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    private MoneyKernel() {
+    }
+
+    public static BigDecimal toDecimal(long cents) {
+        return BigDecimal.valueOf(cents, CENT_SCALE);
+    }
+
+    public static long monthlyPrincipalCents(BigDecimal amount, int months) {
+        try {
+            int shift = CENT_SCALE - amount.scale();
+            long unscaled = unscaled(amount);
+            if (shift >= 0) {
+                return divideHalfUp(Math.multiplyExact(unscaled, powerOfTen(shift)), months);
+            }
+            return divideHalfUp(unscaled, Math.multiplyExact(months, powerOfTen(-shift)));
+        } catch (ArithmeticException outOfRange) {
+            if (months == 0) {
+                throw outOfRange;
+            }
+            return amount.divide(BigDecimal.valueOf(months), CENT_SCALE, RoundingMode.HALF_UP)
+                    .unscaledValue().longValueExact();
+        }
+    }
+
+    public static BigDecimal interest(BigDecimal principal, BigDecimal rate, long days) {
+        if (days <= 0 || principal.signum() <= 0) {
+            return BigDecimal.ZERO;
+        }
+        try {
+            return BigDecimal.valueOf(interest(unscaled(principal), unscaled(rate), days),
+                    Math.addExact(principal.scale(), rate.scale()));
+        } catch (ArithmeticException outOfRange) {
+            return decimalInterest(principal, rate, days);
+        }
+    }
+
+    /*
+     * Installment totals in cents for consecutive accrual periods. The principal starts at the given value
+     * and drops by the monthly principal after each installment; once it is no longer positive no interest
+     * accrues, so clamping it at zero (as the recalculation does) yields the same totals as letting it go
+     * negative (as the initial schedule does).
+     */
+    public static long[] installmentsCents(BigDecimal principal, BigDecimal rate, long monthlyPrincipalCents,
+                                           long[] accrualDays) {
+        try {
+            return installmentsCents(unscaled(principal), principal.scale(), unscaled(rate), rate.scale(),
+                    monthlyPrincipalCents, accrualDays);
+        } catch (ArithmeticException outOfRange) {
+            return decimalInstallmentsCents(principal, rate, monthlyPrincipalCents, accrualDays);
+        }
+    }
+
+    private static long[] installmentsCents(long principal, int principalScale, long rate, int rateScale,
+                                            long monthlyPrincipalCents, long[] accrualDays) {
+        long[] installments = new long[accrualDays.length];
+        for (int i = 0; i < accrualDays.length; i++) {
+            if (accrualDays[i] > 0 && principal > 0) {
+                int interestScale = Math.addExact(principalScale, rateScale);
+                long interest = interest(principal, rate, accrualDays[i]);
+                installments[i] = addToCents(monthlyPrincipalCents, interest, interestScale);
+            } else {
+                installments[i] = monthlyPrincipalCents;
+            }
+
+            int scale = Math.max(principalScale, CENT_SCALE);
+            principal = Math.subtractExact(rescale(principal, principalScale, scale),
+                    rescale(monthlyPrincipalCents, CENT_SCALE, scale));
+            principalScale = scale;
+            if (principal < 0) {
+                principal = 0;
+                principalScale = 0;
+            }
+        }
+        return installments;
+    }
+
+    private static long interest(long principal, long rate, long days) {
+        try {
+            return divideHalfUp(Math.multiplyExact(Math.multiplyExact(principal, rate), days), DAYS_IN_YEAR);
+        } catch (ArithmeticException overflow) {
+            return BigDecimal.valueOf(principal)
+                    .multiply(BigDecimal.valueOf(rate))
+                    .multiply(BigDecimal.valueOf(days))
+                    .divide(BigDecimal.valueOf(DAYS_IN_YEAR), RoundingMode.HALF_UP)
+                    .longValueExact();
+        }
+    }
+
+    private static long addToCents(long cents, long interest, int interestScale) {
+        if (interestScale <= CENT_SCALE) {
+            return Math.addExact(cents, rescale(interest, interestScale, CENT_SCALE));
+        }
+        long divisor = powerOfTen(interestScale - CENT_SCALE);
+        return divideHalfUp(Math.addExact(Math.multiplyExact(cents, divisor), interest), divisor);
+    }
+
+    private static long rescale(long unscaled, int fromScale, int toScale) {
+        return toScale == fromScale ? unscaled : Math.multiplyExact(unscaled, powerOfTen(toScale - fromScale));
+    }
+
+    private static long divideHalfUp(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder != 0 && Math.abs(remainder) >= Math.abs(divisor) - Math.abs(remainder)) {
+            quotient += Long.signum(dividend) * Long.signum(divisor);
+        }
+        return quotient;
+    }
+
+    private static long powerOfTen(int exponent) {
+        if (exponent < 0 || exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("Power of ten out of long range: " + exponent);
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+
+    private static long unscaled(BigDecimal value) {
+        return value.movePointRight(value.scale()).longValueExact();
+    }
+
+    private static BigDecimal decimalInterest(BigDecimal principal, BigDecimal rate, long days) {
+        return principal
+                .multiply(rate)
+                .multiply(BigDecimal.valueOf(days))
+                .divide(BigDecimal.valueOf(DAYS_IN_YEAR), RoundingMode.HALF_UP);
+    }
+
+    private static long[] decimalInstallmentsCents(BigDecimal principal, BigDecimal rate, long monthlyPrincipalCents,
+                                                   long[] accrualDays) {
+        BigDecimal monthlyPrincipal = toDecimal(monthlyPrincipalCents);
+        long[] installments = new long[accrualDays.length];
+        for (int i = 0; i < accrualDays.length; i++) {
+            BigDecimal interest = accrualDays[i] > 0 && principal.signum() > 0
+                    ? decimalInterest(principal, rate, accrualDays[i])
+                    : BigDecimal.ZERO;
+            installments[i] = monthlyPrincipal.add(interest).setScale(CENT_SCALE, RoundingMode.HALF_UP)
+                    .unscaledValue().longValueExact();
+            principal = principal.subtract(monthlyPrincipal);
+            if (principal.signum() < 0) {
+                principal = BigDecimal.ZERO;
+            }
+        }
+        return installments;
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.service;
+
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.Settings;
+import org.example.dao.TransactionTemplate;
+import org.hibernate.StaleStateException;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+ * Re-runs a unit of work that lost an optimistic version check, with exponential backoff and full jitter.
+ * Work running inside an outer unit of work is not retried: its session is already failed, so only the
+ * outermost caller can start over with fresh state.
+ */
+@Slf4j
+public class OptimisticRetry {
+
+    private final TransactionTemplate transactions;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+
+    public OptimisticRetry(TransactionTemplate transactions) {
+        this(transactions,
+                Settings.getInt("p2p.retry.max-attempts", "P2P_RETRY_MAX_ATTEMPTS", 5),
+                Settings.getDuration("p2p.retry.initial-backoff", "P2P_RETRY_INITIAL_BACKOFF", Duration.ofMillis(10)),
+                Settings.getDuration("p2p.retry.max-backoff", "P2P_RETRY_MAX_BACKOFF", Duration.ofMillis(500)));
+    }
+
+    public OptimisticRetry(TransactionTemplate transactions, int maxAttempts, Duration initialBackoff,
+                           Duration maxBackoff) {
+        if (maxAttempts <= 0) {
+            throw new IllegalArgumentException("Max attempts must be positive");
+        }
+        this.transactions = transactions;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+    }
+
+    public void run(String operation, Runnable work) {
+        call(operation, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    public <T> T call(String operation, Supplier<T> work) {
+        if (transactions.isActive()) {
+            return work.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.get();
+            } catch (RuntimeException e) {
+                if (!isOptimisticLockFailure(e) || attempt >= maxAttempts) {
+                    throw e;
+                }
+                logger.debug("{} lost an optimistic lock, attempt {} of {}", operation, attempt, maxAttempts);
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void backoff(int attempt) {
+        long ceiling = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while backing off", e);
+        }
+    }
+
+    static boolean isOptimisticLockFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException || cause instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,276 @@
+package org.example.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.Settings;
+import org.example.constants.PaymentType;
+import org.example.dao.LoanDAO;
+import org.example.dao.PaymentDAO;
+import org.example.dao.TransactionTemplate;
+import org.example.dto.IngestionReport;
+import org.example.dto.RepricingReport;
+import org.example.metrics.MetricsRegistry;
+import org.example.model.Loan;
+import org.example.model.Payment;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Applies repayment files line by line: loanId,dueDate,amount[,paidDate]. Lines are matched to pending
+ * payments a batch at a time (one query and one transaction per batch), so memory stays bounded by the
+ * batch size; the loans' running balances move in the same transaction. A batch that fails is applied
+ * again loan by loan, so one bad loan only rejects its own lines. The amount must equal the installment;
+ * partial and over-payments are rejected for manual handling. Late payments only mark their loan; every
+ * such loan is re-priced once after the whole file.
+ */
+@Slf4j
+public class PaymentIngestionService {
+
+    private static final String SEPARATOR = ",";
+
+    private final PaymentDAO paymentDAO;
+    private final LoanDAO loanDAO;
+    private final RepricingEngine repricingEngine;
+    private final TransactionTemplate transactions;
+    private final OptimisticRetry retry;
+    private final MetricsRegistry metrics;
+    private final int batchSize;
+    private final int maxRejections;
+
+    public PaymentIngestionService(PaymentDAO paymentDAO, LoanDAO loanDAO, RepricingEngine repricingEngine,
+                                   TransactionTemplate transactions, MetricsRegistry metrics) {
+        this(paymentDAO, loanDAO, repricingEngine, transactions, metrics,
+                Settings.getInt("p2p.ingestion.batch-size", "P2P_INGESTION_BATCH_SIZE", 1000),
+                Settings.getInt("p2p.ingestion.max-rejections", "P2P_INGESTION_MAX_REJECTIONS", 1000));
+    }
+
+    public PaymentIngestionService(PaymentDAO paymentDAO, LoanDAO loanDAO, RepricingEngine repricingEngine,
+                                   TransactionTemplate transactions, int batchSize, int maxRejections) {
+        this(paymentDAO, loanDAO, repricingEngine, transactions, MetricsRegistry.disabled(), batchSize, maxRejections);
+    }
+
+    public PaymentIngestionService(PaymentDAO paymentDAO, LoanDAO loanDAO, RepricingEngine repricingEngine,
+                                   TransactionTemplate transactions, MetricsRegistry metrics, int batchSize,
+                                   int maxRejections) {
+        if (batchSize <= 0 || maxRejections < 0) {
+            throw new IllegalArgumentException("Batch size must be positive and max rejections not negative");
+        }
+        this.paymentDAO = paymentDAO;
+        this.loanDAO = loanDAO;
+        this.repricingEngine = repricingEngine;
+        this.transactions = transactions;
+        this.retry = new OptimisticRetry(transactions);
+        this.metrics = metrics;
+        this.batchSize = batchSize;
+        this.maxRejections = maxRejections;
+    }
+
+    public IngestionReport ingest(Path file) {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return ingest(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read payment file " + file, e);
+        }
+    }
+
+    public IngestionReport ingest(Reader input) {
+        return metrics.time("service.ingestion.ingest", () -> ingestLines(input));
+    }
+
+    private IngestionReport ingestLines(Reader input) {
+        long startedAt = System.nanoTime();
+        BufferedReader reader = input instanceof BufferedReader buffered ? buffered : new BufferedReader(input);
+        Progress progress = new Progress();
+        Set<Long> lateLoanIds = new LinkedHashSet<>();
+        List<Line> batch = new ArrayList<>(batchSize);
+        try {
+            String text;
+            long lineNumber = 0;
+            while ((text = reader.readLine()) != null) {
+                lineNumber++;
+                if (text.isBlank() || text.startsWith("#") || lineNumber == 1 && isHeader(text)) {
+                    continue;
+                }
+                progress.lines++;
+                Line line = parse(lineNumber, text, progress);
+                if (line != null) {
+                    batch.add(line);
+                }
+                if (batch.size() == batchSize) {
+                    applyBatch(batch, lateLoanIds, progress);
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read payment file", e);
+        }
+        if (!batch.isEmpty()) {
+            applyBatch(batch, lateLoanIds, progress);
+        }
+
+        int recalculatedLoans = 0;
+        if (!lateLoanIds.isEmpty()) {
+            RepricingReport repricing = repricingEngine.reprice(lateLoanIds);
+            recalculatedLoans = repricing.repricedLoans();
+        }
+
+        IngestionReport report = new IngestionReport(progress.lines, progress.applied, progress.rejected,
+                recalculatedLoans, List.copyOf(progress.rejections), Duration.ofNanos(System.nanoTime() - startedAt));
+        logger.info("Ingested {} lines, {} payments applied, {} rejected, {} loans recalculated, {} lines/s",
+                report.lines(), report.appliedPayments(), report.rejectedLines(), report.recalculatedLoans(),
+                String.format("%.1f", report.linesPerSecond()));
+        return report;
+    }
+
+    private void applyBatch(List<Line> batch, Set<Long> lateLoanIds, Progress progress) {
+        try {
+            apply(batch, lateLoanIds, progress);
+        } catch (RuntimeException batchFailure) {
+            logger.warn("Payment batch of {} lines failed, retrying loan by loan", batch.size(), batchFailure);
+            Map<Long, List<Line>> byLoan = new LinkedHashMap<>();
+            for (Line line : batch) {
+                byLoan.computeIfAbsent(line.loanId(), loanId -> new ArrayList<>()).add(line);
+            }
+            byLoan.forEach((loanId, lines) -> {
+                try {
+                    apply(lines, lateLoanIds, progress);
+                } catch (RuntimeException e) {
+                    logger.warn("Payments of loan {} failed", loanId, e);
+                    lines.forEach(line -> progress.reject(line.withReason("Failed: " + e)));
+                }
+            });
+        }
+    }
+
+    private void apply(List<Line> batch, Set<Long> lateLoanIds, Progress progress) {
+        Set<Long> loanIds = new HashSet<>();
+        Set<LocalDate> dueDates = new HashSet<>();
+        for (Line line : batch) {
+            loanIds.add(line.loanId());
+            dueDates.add(line.dueDate());
+        }
+
+        List<Line> rejected = new ArrayList<>();
+        Set<Long> batchLateLoanIds = new HashSet<>();
+        int applied = retry.call("ingestBatch", () -> transactions.inTransaction(() -> {
+            rejected.clear();
+            batchLateLoanIds.clear();
+            Map<PaymentKey, Payment> pending = new HashMap<>();
+            for (Payment payment : paymentDAO.findPendingByLoanIdsAndDueDates(loanIds, dueDates)) {
+                pending.put(new PaymentKey(payment.getLoan().getId(), payment.getDueDate()), payment);
+            }
+
+            List<Payment> paid = new ArrayList<>();
+            for (Line line : batch) {
+                Payment payment = pending.remove(new PaymentKey(line.loanId(), line.dueDate()));
+                if (payment == null) {
+                    rejected.add(line.withReason("No pending payment for loan " + line.loanId()
+                            + " due " + line.dueDate()));
+                } else if (line.amount().compareTo(payment.getAmount()) != 0) {
+                    pending.put(new PaymentKey(line.loanId(), line.dueDate()), payment);
+                    rejected.add(line.withReason("Amount " + line.amount() + " does not match the installment "
+                            + payment.getAmount()));
+                } else {
+                    payment.setType(PaymentType.PAID);
+                    payment.setPaidDate(line.paidDate());
+                    paid.add(payment);
+                    if (line.paidDate().isAfter(payment.getDueDate())) {
+                        batchLateLoanIds.add(line.loanId());
+                    }
+                }
+            }
+            if (!paid.isEmpty()) {
+                paymentDAO.updateAll(paid);
+                recordPaidPayments(paid);
+            }
+            return paid.size();
+        }));
+        progress.applied += applied;
+        lateLoanIds.addAll(batchLateLoanIds);
+        rejected.forEach(progress::reject);
+    }
+
+    private void recordPaidPayments(List<Payment> paid) {
+        Map<Long, List<Payment>> byLoan = new LinkedHashMap<>();
+        for (Payment payment : paid) {
+            byLoan.computeIfAbsent(payment.getLoan().getId(), loanId -> new ArrayList<>()).add(payment);
+        }
+        byLoan.forEach((loanId, payments) -> {
+            Loan loan = payments.get(0).getLoan();
+            BigDecimal amount = payments.stream().map(Payment::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+            BigDecimal principal = LoanBalances.monthlyPrincipal(loan).multiply(BigDecimal.valueOf(payments.size()));
+            LocalDate paidDate = payments.stream().map(Payment::getPaidDate).max(LocalDate::compareTo).orElseThrow();
+            loanDAO.recordPaidPayments(loanId, payments.size(), amount, principal, paidDate);
+        });
+    }
+
+    private Line parse(long lineNumber, String text, Progress progress) {
+        String[] fields = text.split(SEPARATOR, -1);
+        if (fields.length < 3 || fields.length > 4) {
+            progress.reject(new Line(lineNumber, text, null, null, null, null, "Expected loanId,dueDate,amount[,paidDate]"));
+            return null;
+        }
+        try {
+            Long loanId = Long.valueOf(fields[0].trim());
+            LocalDate dueDate = LocalDate.parse(fields[1].trim());
+            BigDecimal amount = new BigDecimal(fields[2].trim());
+            LocalDate paidDate = fields.length == 4 && !fields[3].isBlank()
+                    ? LocalDate.parse(fields[3].trim())
+                    : LocalDate.now();
+            if (amount.signum() <= 0) {
+                progress.reject(new Line(lineNumber, text, null, null, null, null, "Amount must be positive"));
+                return null;
+            }
+            return new Line(lineNumber, text, loanId, dueDate, amount, paidDate, null);
+        } catch (NumberFormatException | DateTimeParseException e) {
+            progress.reject(new Line(lineNumber, text, null, null, null, null, "Cannot parse line: " + e.getMessage()));
+            return null;
+        }
+    }
+
+    private static boolean isHeader(String text) {
+        return !text.isEmpty() && !Character.isDigit(text.trim().charAt(0));
+    }
+
+    private record PaymentKey(Long loanId, LocalDate dueDate) {
+    }
+
+    private record Line(long lineNumber, String text, Long loanId, LocalDate dueDate, BigDecimal amount,
+                        LocalDate paidDate, String reason) {
+
+        Line withReason(String reason) {
+            return new Line(lineNumber, text, loanId, dueDate, amount, paidDate, reason);
+        }
+    }
+
+    private class Progress {
+        private long lines;
+        private long applied;
+        private long rejected;
+        private final List<IngestionReport.Rejection> rejections = new ArrayList<>();
+
+        void reject(Line line) {
+            rejected++;
+            if (rejections.size() < maxRejections) {
+                rejections.add(new IngestionReport.Rejection(line.lineNumber(), line.text(), line.reason()));
+            }
+        }
+    }
+}
@@ -1,103 +1,198 @@
 package org.example.service;
 
+import jakarta.persistence.OptimisticLockException;
 import org.example.constants.LoanStatus;
 import org.example.constants.PaymentType;
 import org.example.dao.PaymentDAO;
+import org.example.dao.TransactionTemplate;
+import org.example.dto.LoanBalance;
+import org.example.metrics.MetricsRegistry;
 import org.example.model.Loan;
 import org.example.model.Payment;
 import org.example.model.User;
+import org.hibernate.Hibernate;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class PaymentService {
 
     private final PaymentDAO paymentDAO;
     private final LoanService loanService;
+    private final TransactionTemplate transactions;
+    private final OptimisticRetry retry;
+    private final MetricsRegistry metrics;
 
     public PaymentService(PaymentDAO paymentDAO, LoanService loanService) {
+        this(paymentDAO, loanService, TransactionTemplate.none(), MetricsRegistry.disabled());
+    }
+
+    public PaymentService(PaymentDAO paymentDAO, LoanService loanService, TransactionTemplate transactions,
+                          MetricsRegistry metrics) {
         this.paymentDAO = paymentDAO;
         this.loanService = loanService;
+        this.transactions = transactions;
+        this.retry = new OptimisticRetry(transactions);
+        this.metrics = metrics;
     }
 
     public List<Payment> generateAndSaveSchedule(Loan loan) {
-        List<Payment> schedule = generateDifferentiatedSchedule(loan);
-        for (Payment payment : schedule) {
-            paymentDAO.save(payment);
-        }
-        return schedule;
+        return metrics.time("service.payment.generateAndSaveSchedule", () -> {
+            List<Payment> schedule = generateDifferentiatedSchedule(loan);
+            LoanBalance balance = LoanBalances.compute(loan, schedule);
+            List<Payment> saved = transactions.inTransaction(() -> {
+                List<Payment> payments = paymentDAO.saveAll(schedule);
+                if (loan.getId() != null && !loanService.updateBalance(loan, balance)) {
+                    throw new OptimisticLockException("Loan " + loan.getId() + " changed while its schedule was saved");
+                }
+                return payments;
+            });
+            LoanBalances.apply(loan, balance);
+            return saved;
+        });
     }
 
     public List<Payment> generateDifferentiatedSchedule(Loan loan) {
-        if (loan == null) {
-            throw new IllegalArgumentException("Loan object is null");
-        }
-        List<Payment> schedule = new ArrayList<>();
-        BigDecimal remainingPrincipal = loan.getAmount();
-        int months = (int) ChronoUnit.MONTHS.between(loan.getStartDate(), loan.getEndDate());
-        BigDecimal monthlyPrincipal = loan.getAmount()
-                .divide(BigDecimal.valueOf(months), 2, RoundingMode.HALF_UP);
-        LocalDate paymentDate = loan.getStartDate().plusMonths(1);
-
-        LocalDate lastDate = loan.getStartDate();
-
-        for (int i = 0; i < months; i++) {
-
-            BigDecimal interest = loanService.processInterestAccrual(loan, lastDate, paymentDate, remainingPrincipal);
-            BigDecimal totalPayment = monthlyPrincipal.add(interest).setScale(2, RoundingMode.HALF_UP);
-
-            Payment payment = Payment.builder()
-                    .loan(loan)
-                    .amount(totalPayment)
-                    .dueDate(paymentDate)
-                    .paidDate(null)
-                    .type(PaymentType.PENDING)
-                    .build();
-            schedule.add(payment);
-
-            remainingPrincipal = remainingPrincipal.subtract(monthlyPrincipal);
-            lastDate = paymentDate;
-            paymentDate = paymentDate.plusMonths(1);
-        }
-        return schedule;
+        return metrics.time("service.payment.generateDifferentiatedSchedule", () -> {
+            if (loan == null) {
+                throw new IllegalArgumentException("Loan object is null");
+            }
+            int months = (int) ChronoUnit.MONTHS.between(loan.getStartDate(), loan.getEndDate());
+            long monthlyPrincipal = MoneyKernel.monthlyPrincipalCents(loan.getAmount(), months);
+
+            int count = Math.max(months, 0);
+            LocalDate[] dueDates = new LocalDate[count];
+            long[] accrualDays = new long[count];
+            LocalDate lastDate = loan.getStartDate();
+            LocalDate paymentDate = loan.getStartDate().plusMonths(1);
+            for (int i = 0; i < count; i++) {
+                dueDates[i] = paymentDate;
+                accrualDays[i] = ChronoUnit.DAYS.between(lastDate, paymentDate);
+                lastDate = paymentDate;
+                paymentDate = paymentDate.plusMonths(1);
+            }
+
+            long[] installments = MoneyKernel.installmentsCents(loan.getAmount(), loan.getInterestRate(),
+                    monthlyPrincipal, accrualDays);
+
+            List<Payment> schedule = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Payment payment = Payment.builder()
+                        .loan(loan)
+                        .amount(MoneyKernel.toDecimal(installments[i]))
+                        .dueDate(dueDates[i])
+                        .paidDate(null)
+                        .type(PaymentType.PENDING)
+                        .build();
+                schedule.add(payment);
+            }
+            return schedule;
+        });
     }
 
     public void paidPayment(Payment payment) {
-        if (payment.getType() == PaymentType.PAID) {
-            throw new IllegalStateException("Цей платіж вже був сплачений");
-        }
-        payment.setPaidDate(LocalDate.now());
-        payment.setType(PaymentType.PAID);
-        paymentDAO.update(payment);
-
-        if (LocalDate.now().isAfter(payment.getDueDate())) {
-            recalculateRemainingSchedule(payment.getLoan());
-        }
+        metrics.time("service.payment.paidPayment", () -> {
+            if (payment.getType() == PaymentType.PAID) {
+                throw new IllegalStateException("Цей платіж вже був сплачений");
+            }
+            LocalDate paidDate = LocalDate.now();
+            Loan loan = payment.getLoan();
+            Long loanId = loan == null ? null : loan.getId();
+            // Loaded before the unit of work, so the session only ever sees the loan after its balances moved.
+            BigDecimal monthlyPrincipal = loanId == null ? null
+                    : LoanBalances.monthlyPrincipal(loanService.initialized(loan));
+            LoanBalance balance = LoanBalances.isMaintained(loan) ? LoanBalance.of(loan) : null;
+            payment.setPaidDate(paidDate);
+            payment.setType(PaymentType.PAID);
+            boolean outermost = !transactions.isActive();
+            try {
+                Rescheduled rescheduled = loanService.getLoanLocks().withLock(loanId, () -> retry.call("paidPayment",
+                        () -> transactions.inTransaction(() -> {
+                            if (!paymentDAO.markPaid(payment.getId(), paidDate)) {
+                                throw new IllegalStateException("Цей платіж вже був сплачений");
+                            }
+                            if (loanId != null) {
+                                loanService.recordPaidPayments(loanId, 1, payment.getAmount(), monthlyPrincipal, paidDate);
+                            }
+                            if (balance != null) {
+                                LoanBalances.apply(loan, balance);
+                                LoanBalances.recordPaidPayment(loan, payment, monthlyPrincipal);
+                            }
+                            return paidDate.isAfter(payment.getDueDate()) ? reschedule(loan) : Rescheduled.NONE;
+                        })));
+                if (outermost) {
+                    rescheduled.copyTo(loan);
+                }
+            } catch (RuntimeException e) {
+                payment.setPaidDate(null);
+                payment.setType(PaymentType.PENDING);
+                if (balance != null) {
+                    LoanBalances.apply(loan, balance);
+                }
+                throw e;
+            }
+        });
     }
 
     public void recalculateRemainingSchedule(Loan loan) {
-        List<Payment> unpaidPayments = loan.getPayments().stream()
-                .filter(payment -> payment.getType() == PaymentType.PENDING)
-                .sorted(Comparator.comparing(Payment::getDueDate)).toList();
-        if (unpaidPayments.isEmpty()) {
-            return;
+        metrics.time("service.payment.recalculateRemainingSchedule", () -> {
+            boolean outermost = !transactions.isActive();
+            Rescheduled rescheduled = loanService.getLoanLocks().withLock(loan.getId(),
+                    () -> retry.call("recalculateRemainingSchedule", () -> transactions.inTransaction(() -> reschedule(loan))));
+            if (outermost) {
+                rescheduled.copyTo(loan);
+            }
+        });
+    }
+
+    /*
+     * Re-prices the loan as the unit of work sees it, which inside one is a managed copy rather than the
+     * caller's instance; the result lets the outermost caller bring its own copy up to date after commit.
+     */
+    private Rescheduled reschedule(Loan loan) {
+        Loan current = loanService.withPayments(loan);
+        BigDecimal pendingBefore = LoanBalances.pendingTotal(current);
+        List<Payment> changedPayments = repriceRemainingSchedule(current);
+        if (changedPayments.isEmpty()) {
+            return Rescheduled.NONE;
+        }
+        List<Payment> saved = paymentDAO.updateAll(changedPayments);
+        BigDecimal delta = LoanBalances.pendingTotal(current).subtract(pendingBefore);
+        if (delta.signum() == 0 || !LoanBalances.isMaintained(current)) {
+            return new Rescheduled(saved, BigDecimal.ZERO);
         }
-        int totalMonths = (int) ChronoUnit.MONTHS.between(loan.getStartDate(), loan.getEndDate());
-        BigDecimal monthlyPrincipal = loan.getAmount()
-                .divide(BigDecimal.valueOf(totalMonths), 2, RoundingMode.HALF_UP);
+        loanService.adjustOutstandingTotal(current.getId(), delta);
+        return new Rescheduled(saved, delta);
+    }
+
+    public List<Payment> repriceRemainingSchedule(Loan loan) {
+        return metrics.time("service.payment.repriceRemainingSchedule", () -> {
+            List<Payment> unpaidPayments = loan.getPayments().stream()
+                    .filter(payment -> payment.getType() == PaymentType.PENDING)
+                    .sorted(Comparator.comparing(Payment::getDueDate)).toList();
+            if (unpaidPayments.isEmpty()) {
+                return List.of();
+            }
+            int totalMonths = (int) ChronoUnit.MONTHS.between(loan.getStartDate(), loan.getEndDate());
+            long monthlyPrincipal = MoneyKernel.monthlyPrincipalCents(loan.getAmount(), totalMonths);
 
-        LocalDate lastPaidDate = getLastPaidPaymentDate(loan);
-        BigDecimal remainingPrincipal = calculateRemainingPrincipal(loan, monthlyPrincipal);
+            LocalDate lastPaidDate = getLastPaidPaymentDate(loan);
+            BigDecimal remainingPrincipal = calculateRemainingPrincipal(loan, monthlyPrincipal);
 
-        recalculatePayments(unpaidPayments, remainingPrincipal, lastPaidDate, loan, monthlyPrincipal);
+            return recalculatePayments(unpaidPayments, remainingPrincipal, lastPaidDate, loan, monthlyPrincipal);
+        });
     }
 
     private LocalDate getLastPaidPaymentDate(Loan loan) {
+        if (LoanBalances.isMaintained(loan)) {
+            return loan.getLastPaidDate() != null ? loan.getLastPaidDate() : loan.getStartDate();
+        }
         return loan.getPayments().stream()
                 .filter(payment -> payment.getType() == PaymentType.PAID)
                 .max(Comparator.comparing(Payment::getPaidDate))
@@ -105,43 +200,74 @@ public class PaymentService {
                 .orElse(loan.getStartDate());
     }
 
-    private BigDecimal calculateRemainingPrincipal(Loan loan, BigDecimal monthlyPrincipal) {
+    private BigDecimal calculateRemainingPrincipal(Loan loan, long monthlyPrincipal) {
+        if (LoanBalances.isMaintained(loan)) {
+            return loan.getOutstandingPrincipal();
+        }
         int paidMonths = (int) loan.getPayments().stream()
                 .filter(payment -> payment.getType() == PaymentType.PAID)
                 .count();
 
-        return loan.getAmount().subtract(
-                monthlyPrincipal.multiply(BigDecimal.valueOf(paidMonths))
-        );
+        return loan.getAmount().subtract(MoneyKernel.toDecimal(Math.multiplyExact(monthlyPrincipal, paidMonths)));
     }
 
-    private void recalculatePayments(List<Payment> unpaidPayments, BigDecimal remainingPrincipal,
-                                     LocalDate lastPaidDate, Loan loan, BigDecimal monthlyPrincipal) {
+    private List<Payment> recalculatePayments(List<Payment> unpaidPayments, BigDecimal remainingPrincipal,
+                                              LocalDate lastPaidDate, Loan loan, long monthlyPrincipal) {
 
-        BigDecimal currentPrincipal = remainingPrincipal;
+        long[] accrualDays = new long[unpaidPayments.size()];
         LocalDate previousDate = lastPaidDate;
+        for (int i = 0; i < accrualDays.length; i++) {
+            LocalDate dueDate = unpaidPayments.get(i).getDueDate();
+            accrualDays[i] = ChronoUnit.DAYS.between(previousDate, dueDate);
+            previousDate = dueDate;
+        }
 
-        for (Payment payment : unpaidPayments) {
-            BigDecimal interest = loanService.processInterestAccrual(loan, previousDate, payment.getDueDate(), currentPrincipal);
-            BigDecimal newAmount = monthlyPrincipal.add(interest).setScale(2, RoundingMode.HALF_UP);
-
-            payment.setAmount(newAmount);
-            paymentDAO.update(payment);
+        long[] installments = MoneyKernel.installmentsCents(remainingPrincipal, loan.getInterestRate(),
+                monthlyPrincipal, accrualDays);
 
-            currentPrincipal = currentPrincipal.subtract(monthlyPrincipal);
-            if (currentPrincipal.compareTo(BigDecimal.ZERO) < 0) {
-                currentPrincipal = BigDecimal.ZERO;
+        List<Payment> changedPayments = new ArrayList<>();
+        for (int i = 0; i < installments.length; i++) {
+            Payment payment = unpaidPayments.get(i);
+            BigDecimal newAmount = MoneyKernel.toDecimal(installments[i]);
+            if (payment.getAmount() == null || newAmount.compareTo(payment.getAmount()) != 0) {
+                payment.setAmount(newAmount);
+                changedPayments.add(payment);
             }
-
-            previousDate = payment.getDueDate();
         }
+        return changedPayments;
     }
 
     public List<Payment> getPaymentsByLoanIdAndType(Loan loan, PaymentType paymentType) {
-        return paymentDAO.getPaymentsByLoanIdAndType(loan.getId(), paymentType);
+        return metrics.time("service.payment.getPaymentsByLoanIdAndType", () -> paymentDAO.getPaymentsByLoanIdAndType(loan.getId(), paymentType));
     }
 
     public List<Payment> getAllPaymentsByType(PaymentType paymentType) {
-        return paymentDAO.getAllPaymentsByType(paymentType);
+        return metrics.time("service.payment.getAllPaymentsByType", () -> paymentDAO.getAllPaymentsByType(paymentType));
+    }
+
+    private record Rescheduled(List<Payment> payments, BigDecimal totalDelta) {
+
+        static final Rescheduled NONE = new Rescheduled(List.of(), BigDecimal.ZERO);
+
+        void copyTo(Loan loan) {
+            if (!Hibernate.isInitialized(loan)) {
+                return;
+            }
+            if (loan.getPayments() != null && Hibernate.isInitialized(loan.getPayments())) {
+                Map<Long, Payment> byId = new HashMap<>();
+                payments.stream().filter(payment -> payment.getId() != null)
+                        .forEach(payment -> byId.put(payment.getId(), payment));
+                for (Payment payment : loan.getPayments()) {
+                    Payment saved = payment.getId() == null ? null : byId.get(payment.getId());
+                    if (saved != null && saved != payment) {
+                        payment.setAmount(saved.getAmount());
+                        payment.setVersion(saved.getVersion());
+                    }
+                }
+            }
+            if (totalDelta.signum() != 0 && loan.getOutstandingTotal() != null) {
+                loan.setOutstandingTotal(loan.getOutstandingTotal().add(totalDelta));
+            }
+        }
     }
 }
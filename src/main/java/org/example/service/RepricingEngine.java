@@ -0,0 +1,283 @@
+package org.example.service;
+
+import jakarta.persistence.OptimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.Settings;
+import org.example.constants.LoanStatus;
+import org.example.dao.LoanDAO;
+import org.example.dao.PaymentDAO;
+import org.example.dao.TransactionTemplate;
+import org.example.dto.RepricingReport;
+import org.example.lock.LoanLocks;
+import org.example.metrics.MetricsRegistry;
+import org.example.model.Loan;
+import org.example.model.Payment;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/*
+ * Re-prices the remaining schedules of many loans. Loans are split into batches that run on a
+ * ForkJoinPool; each batch loads its loans with payments in one query, recomputes the schedules in
+ * memory and writes the changed installments, with the matching outstanding totals, in one transaction.
+ * Only the load and the write hold a connection, and a semaphore keeps the number of batches doing so
+ * below the connection pool size. The batch write takes no loan locks; it first checks that every loan it
+ * writes still has the version read at load and forces that version up at commit, so a payment posted in
+ * between fails the batch. Then every loan of the batch is re-read and re-priced on its own under its lock.
+ */
+@Slf4j
+public class RepricingEngine {
+
+    private final LoanDAO loanDAO;
+    private final PaymentDAO paymentDAO;
+    private final PaymentService paymentService;
+    private final LoanLocks loanLocks;
+    private final TransactionTemplate transactions;
+    private final OptimisticRetry retry;
+    private final MetricsRegistry metrics;
+    private final int parallelism;
+    private final int batchSize;
+    private final Semaphore databasePermits;
+
+    public RepricingEngine(LoanDAO loanDAO, PaymentDAO paymentDAO, PaymentService paymentService,
+                           LoanLocks loanLocks, TransactionTemplate transactions, MetricsRegistry metrics) {
+        this(loanDAO, paymentDAO, paymentService, loanLocks, transactions, metrics,
+                Settings.getInt("p2p.repricing.parallelism", "P2P_REPRICING_PARALLELISM",
+                        Runtime.getRuntime().availableProcessors()),
+                Settings.getInt("p2p.repricing.batch-size", "P2P_REPRICING_BATCH_SIZE", 200),
+                Settings.getInt("p2p.repricing.max-db-batches", "P2P_REPRICING_MAX_DB_BATCHES",
+                        Math.max(1, Settings.getInt("hibernate.hikari.maximumPoolSize", "DB_POOL_MAX_SIZE", 10) / 2)));
+    }
+
+    public RepricingEngine(LoanDAO loanDAO, PaymentDAO paymentDAO, PaymentService paymentService,
+                           int parallelism, int batchSize, int maxDatabaseBatches) {
+        this(loanDAO, paymentDAO, paymentService, new LoanLocks(MetricsRegistry.disabled()), TransactionTemplate.none(),
+                MetricsRegistry.disabled(), parallelism, batchSize, maxDatabaseBatches);
+    }
+
+    public RepricingEngine(LoanDAO loanDAO, PaymentDAO paymentDAO, PaymentService paymentService,
+                           LoanLocks loanLocks, TransactionTemplate transactions, MetricsRegistry metrics,
+                           int parallelism, int batchSize, int maxDatabaseBatches) {
+        if (parallelism <= 0 || batchSize <= 0 || maxDatabaseBatches <= 0) {
+            throw new IllegalArgumentException("Parallelism, batch size and database batches must be positive");
+        }
+        this.loanDAO = loanDAO;
+        this.paymentDAO = paymentDAO;
+        this.paymentService = paymentService;
+        this.loanLocks = loanLocks;
+        this.transactions = transactions;
+        this.retry = new OptimisticRetry(transactions);
+        this.metrics = metrics;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.databasePermits = new Semaphore(maxDatabaseBatches, true);
+    }
+
+    public RepricingReport repriceActiveLoans() {
+        return metrics.time("service.repricing.repriceActiveLoans", () -> reprice(activeLoanIds()));
+    }
+
+    private List<Long> activeLoanIds() {
+        List<Long> loanIds = new ArrayList<>();
+        Long afterId = null;
+        List<Long> page;
+        do {
+            page = loanDAO.getLoanIdsByStatusPage(LoanStatus.ACTIVE, afterId, batchSize * parallelism);
+            if (!page.isEmpty()) {
+                loanIds.addAll(page);
+                afterId = page.get(page.size() - 1);
+            }
+        } while (!page.isEmpty());
+        return loanIds;
+    }
+
+    public RepricingReport reprice(Collection<Long> loanIds) {
+        return metrics.time("service.repricing.reprice", () -> repriceAll(loanIds));
+    }
+
+    private RepricingReport repriceAll(Collection<Long> loanIds) {
+        long startedAt = System.nanoTime();
+        List<Long> ids = List.copyOf(loanIds);
+        Progress progress = new Progress(ids.size(), startedAt);
+
+        List<Callable<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            batches.add(() -> {
+                repriceBatch(batch, progress);
+                return null;
+            });
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (Future<Void> future : pool.invokeAll(batches)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Repricing was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Repricing batch failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        RepricingReport report = new RepricingReport(ids.size(), progress.repricedLoans.get(),
+                progress.updatedPayments.get(), List.copyOf(progress.failures),
+                Duration.ofNanos(System.nanoTime() - startedAt));
+        logger.info("Repriced {} of {} loans, {} payments updated, {} failed, {} loans/s",
+                report.repricedLoans(), report.loans(), report.updatedPayments(), report.failures().size(),
+                String.format("%.1f", report.loansPerSecond()));
+        return report;
+    }
+
+    private void repriceBatch(List<Long> loanIds, Progress progress) {
+        List<Loan> loans;
+        try {
+            loans = withConnection(() -> loanDAO.findWithPayments(loanIds));
+        } catch (RuntimeException e) {
+            loanIds.forEach(loanId -> progress.fail(loanId, e));
+            progress.completed(loanIds.size());
+            return;
+        }
+
+        Map<Long, List<Payment>> changedByLoan = new LinkedHashMap<>();
+        Map<Long, BigDecimal> totalDeltas = new LinkedHashMap<>();
+        Map<Long, Long> versions = new LinkedHashMap<>();
+        for (Loan loan : loans) {
+            try {
+                List<Payment> changed = reprice(loan, totalDeltas);
+                changedByLoan.put(loan.getId(), changed);
+                if (!changed.isEmpty()) {
+                    versions.put(loan.getId(), loan.getVersion());
+                }
+            } catch (RuntimeException e) {
+                progress.fail(loan.getId(), e);
+            }
+        }
+
+        List<Payment> changed = changedByLoan.values().stream().flatMap(List::stream).toList();
+        try {
+            if (!changed.isEmpty()) {
+                withConnection(() -> write(changed, totalDeltas, versions));
+            }
+            progress.repriced(changedByLoan.size(), changed.size());
+        } catch (RuntimeException batchFailure) {
+            logger.warn("Batch write of {} loans failed, retrying loan by loan", changedByLoan.size(), batchFailure);
+            changedByLoan.keySet().forEach(loanId -> {
+                try {
+                    progress.repriced(1, repriceLoan(loanId));
+                } catch (RuntimeException e) {
+                    progress.fail(loanId, e);
+                }
+            });
+        }
+
+        progress.completed(loanIds.size());
+    }
+
+    private List<Payment> reprice(Loan loan, Map<Long, BigDecimal> totalDeltas) {
+        BigDecimal pendingBefore = LoanBalances.pendingTotal(loan);
+        List<Payment> changed = paymentService.repriceRemainingSchedule(loan);
+        BigDecimal delta = LoanBalances.pendingTotal(loan).subtract(pendingBefore);
+        if (delta.signum() != 0 && LoanBalances.isMaintained(loan)) {
+            totalDeltas.put(loan.getId(), delta);
+        }
+        return changed;
+    }
+
+    // The batch copy may be stale by now, so the loan is read again under its lock, as paidPayment would see it.
+    private int repriceLoan(Long loanId) {
+        return loanLocks.withLock(loanId, () -> retry.call("reprice", () -> withConnection(() ->
+                transactions.inTransaction(() -> {
+                    Loan loan = loanDAO.findByIdWithPayments(loanId);
+                    if (loan == null) {
+                        throw new IllegalStateException("Loan with id " + loanId + " not found");
+                    }
+                    Map<Long, BigDecimal> totalDeltas = new LinkedHashMap<>();
+                    List<Payment> changed = reprice(loan, totalDeltas);
+                    if (!changed.isEmpty()) {
+                        write(changed, totalDeltas, Collections.singletonMap(loanId, loan.getVersion()));
+                    }
+                    return changed.size();
+                }))));
+    }
+
+    private List<Payment> write(List<Payment> payments, Map<Long, BigDecimal> totalDeltas, Map<Long, Long> versions) {
+        return transactions.inTransaction(() -> {
+            versions.forEach((loanId, version) -> {
+                if (!loanDAO.lockVersion(loanId, version)) {
+                    throw new OptimisticLockException("Loan " + loanId + " changed since it was loaded for repricing");
+                }
+            });
+            List<Payment> updated = paymentDAO.updateAll(payments);
+            totalDeltas.forEach(loanDAO::adjustOutstandingTotal);
+            return updated;
+        });
+    }
+
+    private <T> T withConnection(Supplier<T> work) {
+        try {
+            databasePermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a database permit", e);
+        }
+        try {
+            return work.get();
+        } finally {
+            databasePermits.release();
+        }
+    }
+
+    private static class Progress {
+        private final int total;
+        private final long startedAt;
+        private final int logEvery;
+        private final AtomicInteger done = new AtomicInteger();
+        private final AtomicInteger repricedLoans = new AtomicInteger();
+        private final AtomicInteger updatedPayments = new AtomicInteger();
+        private final ConcurrentLinkedQueue<RepricingReport.Failure> failures = new ConcurrentLinkedQueue<>();
+
+        Progress(int total, long startedAt) {
+            this.total = total;
+            this.startedAt = startedAt;
+            this.logEvery = Math.max(1, total / 10);
+        }
+
+        void repriced(int loans, int payments) {
+            repricedLoans.addAndGet(loans);
+            updatedPayments.addAndGet(payments);
+        }
+
+        void fail(Long loanId, RuntimeException e) {
+            logger.warn("Repricing failed for loan {}", loanId, e);
+            failures.add(new RepricingReport.Failure(loanId, e.toString()));
+        }
+
+        void completed(int loans) {
+            int before = done.getAndAdd(loans);
+            int after = before + loans;
+            if (before / logEvery != after / logEvery || after == total) {
+                double seconds = (System.nanoTime() - startedAt) / 1_000_000_000.0;
+                logger.info("Repricing progress {}/{} loans, {} loans/s", after, total,
+                        String.format("%.1f", seconds == 0 ? 0 : after / seconds));
+            }
+        }
+    }
+}
@@ -1,68 +1,141 @@
 package org.example.service;
 
+import lombok.extern.slf4j.Slf4j;
+import org.example.config.Settings;
 import org.example.constants.LoanStatus;
+import org.example.dao.TransactionTemplate;
 import org.example.dao.UserDAO;
 import org.example.dto.UserDTO;
+import org.example.metrics.MetricsRegistry;
 import org.example.model.Loan;
 import org.example.model.Payment;
 import org.example.model.User;
+import org.example.search.UserSearchIndex;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
+@Slf4j
 public class UserService {
 
+    private static final int SEARCH_REBUILD_FETCH_SIZE = 1000;
+
     private final UserDAO userDAO;
+    private final UserSearchIndex searchIndex;
+    private final TransactionTemplate transactions;
+    private final MetricsRegistry metrics;
+    private volatile boolean searchIndexBuilt;
 
     public UserService(UserDAO userDAO) {
+        this(userDAO, TransactionTemplate.none(), MetricsRegistry.disabled());
+    }
+
+    public UserService(UserDAO userDAO, TransactionTemplate transactions, MetricsRegistry metrics) {
+        this(userDAO, new UserSearchIndex(
+                Settings.getInt("p2p.user-search.max-candidates", "P2P_USER_SEARCH_MAX_CANDIDATES", 5_000)),
+                transactions, metrics);
+    }
+
+    public UserService(UserDAO userDAO, UserSearchIndex searchIndex, TransactionTemplate transactions,
+                       MetricsRegistry metrics) {
         this.userDAO = userDAO;
+        this.searchIndex = searchIndex;
+        this.transactions = transactions;
+        this.metrics = metrics;
     }
 
     public User createUser(UserDTO userDTO) {
-        if (!userDTO.isValidUserData()) {
-            throw new IllegalArgumentException("Invalid user creation data");
-        }
-        User user = User.builder()
-                .firstName(userDTO.getFirstName())
-                .lastName(userDTO.getLastName())
-                .phoneNumber(userDTO.getPhoneNumber())
-                .email(userDTO.getEmail())
-                .build();
-        userDAO.save(user);
-        return user;
+        return metrics.time("service.user.createUser", () -> {
+            if (!userDTO.isValidUserData()) {
+                throw new IllegalArgumentException("Invalid user creation data");
+            }
+            User user = User.builder()
+                    .firstName(userDTO.getFirstName())
+                    .lastName(userDTO.getLastName())
+                    .phoneNumber(userDTO.getPhoneNumber())
+                    .email(userDTO.getEmail())
+                    .build();
+            userDAO.save(user);
+            searchIndex.index(user);
+            return user;
+        });
+    }
+
+    public User getUserById(Long id) {
+        return metrics.time("service.user.getUserById", () -> {
+            User user = userDAO.findById(id);
+            if (user == null) {
+                throw new IllegalStateException("User with id " + id + " not found");
+            }
+            return user;
+        });
     }
 
     public List<User> getUsersByKeyword(String keyword) {
-        return userDAO.getUsersByKeyword(keyword);
+        return metrics.time("service.user.getUsersByKeyword", () -> userDAO.getUsersByKeyword(keyword));
     }
 
     public User updateUser(Long id, UserDTO userDTO) {
-        User userById = userDAO.findById(id);
-        if (userById == null) {
-            throw new IllegalStateException("User with id " + id + " not found");
-        }
-        if (userDTO.getFirstName() != null && !userDTO.getFirstName().trim().isEmpty()) {
-            userById.setFirstName(userDTO.getFirstName());
-        }
-        if (userDTO.getLastName() != null && !userDTO.getLastName().trim().isEmpty()) {
-            userById.setLastName(userDTO.getLastName());
-        }
-        if (userDTO.getPhoneNumber() != null && !userDTO.getPhoneNumber().trim().isEmpty()) {
-            userById.setPhoneNumber(userDTO.getPhoneNumber());
-        }
-        if (userDTO.getEmail() != null && !userDTO.getEmail().trim().isEmpty()) {
-            userById.setEmail(userDTO.getEmail());
+        return metrics.time("service.user.updateUser", () -> {
+            User updatedUser = transactions.inTransaction(() -> {
+                User userById = userDAO.findById(id);
+                if (userById == null) {
+                    throw new IllegalStateException("User with id " + id + " not found");
+                }
+                if (userDTO.getFirstName() != null && !userDTO.getFirstName().trim().isEmpty()) {
+                    userById.setFirstName(userDTO.getFirstName());
+                }
+                if (userDTO.getLastName() != null && !userDTO.getLastName().trim().isEmpty()) {
+                    userById.setLastName(userDTO.getLastName());
+                }
+                if (userDTO.getPhoneNumber() != null && !userDTO.getPhoneNumber().trim().isEmpty()) {
+                    userById.setPhoneNumber(userDTO.getPhoneNumber());
+                }
+                if (userDTO.getEmail() != null && !userDTO.getEmail().trim().isEmpty()) {
+                    userById.setEmail(userDTO.getEmail());
+                }
+                return userDAO.update(userById);
+            });
+            searchIndex.index(updatedUser);
+            return updatedUser;
+        });
+    }
+
+    public List<UserSearchIndex.Hit> searchUsers(String query, int limit) {
+        return metrics.time("service.user.searchUsers", () -> {
+            if (!searchIndexBuilt) {
+                buildSearchIndexOnce();
+            }
+            return searchIndex.search(query, limit);
+        });
+    }
+
+    private synchronized void buildSearchIndexOnce() {
+        if (!searchIndexBuilt) {
+            rebuildSearchIndex();
         }
-        return userDAO.update(userById);
+    }
+
+    public synchronized int rebuildSearchIndex() {
+        return metrics.time("service.user.rebuildSearchIndex", () -> {
+            searchIndex.clear();
+            try (Stream<User> users = userDAO.streamAll(SEARCH_REBUILD_FETCH_SIZE)) {
+                users.forEach(searchIndex::index);
+            }
+            searchIndexBuilt = true;
+            logger.info("User search index rebuilt with {} users", searchIndex.size());
+            return searchIndex.size();
+        });
     }
 
     public User getTakenLoansByUser(User user) {
-        return userDAO.getTakenLoansByUser(user.getId());
+        return metrics.time("service.user.getTakenLoansByUser", () -> userDAO.getTakenLoansByUser(user.getId()));
     }
 
     public User getGivenLoansByUser(User user) {
-        return userDAO.getGivenLoansByUser(user.getId());
+        return metrics.time("service.user.getGivenLoansByUser", () -> userDAO.getGivenLoansByUser(user.getId()));
     }
 }
@@ -0,0 +1,48 @@
+-- Baseline of the schema previously produced by hbm2ddl.auto=update.
+-- Every statement is idempotent so existing databases can adopt the migration history as is.
+
+create table if not exists users (
+    id bigint not null auto_increment,
+    first_name varchar(255),
+    last_name varchar(255),
+    phone_number varchar(255),
+    email varchar(255),
+    primary key (id)
+) engine=InnoDB;
+
+create table if not exists loans (
+    id bigint not null,
+    creditor_id bigint not null,
+    debtor_id bigint not null,
+    amount decimal(38,2),
+    interest_rate decimal(38,2),
+    start_date date,
+    end_date date,
+    status varchar(16),
+    primary key (id),
+    constraint fk_loans_creditor foreign key (creditor_id) references users (id),
+    constraint fk_loans_debtor foreign key (debtor_id) references users (id)
+) engine=InnoDB;
+
+create table if not exists payments (
+    id bigint not null,
+    loan_id bigint not null,
+    dueDate date,
+    paidDate date,
+    amount decimal(38,2),
+    type varchar(16),
+    primary key (id),
+    constraint fk_payments_loan foreign key (loan_id) references loans (id)
+) engine=InnoDB;
+
+-- Table-backed sequences for the pooled generators (allocationSize = 50).
+-- Seeding with max(id) + 50 keeps the first allocated block above the rows inserted with IDENTITY.
+create table if not exists loans_seq (next_val bigint) engine=InnoDB;
+insert into loans_seq (next_val)
+select coalesce(max(id), 0) + 50 from loans
+having (select count(*) from loans_seq) = 0;
+
+create table if not exists payments_seq (next_val bigint) engine=InnoDB;
+insert into payments_seq (next_val)
+select coalesce(max(id), 0) + 50 from payments
+having (select count(*) from payments_seq) = 0;
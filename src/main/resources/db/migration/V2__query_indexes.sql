@@ -0,0 +1,8 @@
+-- Indexes for the predicates used by LoanDAOImpl and PaymentDAOImpl.
+
+create index idx_loans_creditor on loans (creditor_id);
+create index idx_loans_debtor_status on loans (debtor_id, status);
+create index idx_loans_status_end_date on loans (status, end_date);
+
+create index idx_payments_loan_type on payments (loan_id, type);
+create index idx_payments_type on payments (type);
@@ -0,0 +1,4 @@
+-- Serves the creditor/status/start date range query; its creditor_id prefix replaces idx_loans_creditor.
+
+create index idx_loans_creditor_status_start on loans (creditor_id, status, start_date);
+drop index idx_loans_creditor on loans;
@@ -0,0 +1,5 @@
+-- Version columns for @Version optimistic locking on Loan and Payment.
+-- Existing rows start at 0; every ORM update and every conditional bulk update increments the version.
+
+alter table loans add column version bigint not null default 0;
+alter table payments add column version bigint not null default 0;
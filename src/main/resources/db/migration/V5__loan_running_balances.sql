@@ -0,0 +1,20 @@
+-- Running balances kept on the loan row so remaining debt and repricing inputs are read without the payments.
+-- Backfilled from the payments; outstanding_principal follows PaymentService: amount minus the monthly
+-- principal, rounded half up to cents, for every paid installment.
+
+alter table loans
+    add column outstanding_principal decimal(38,2),
+    add column outstanding_total decimal(38,2),
+    add column paid_count int not null default 0,
+    add column last_paid_date date,
+    add column next_due_date date;
+
+update loans l
+set l.paid_count = (select count(*) from payments p where p.loan_id = l.id and p.type = 'PAID'),
+    l.last_paid_date = (select max(p.paidDate) from payments p where p.loan_id = l.id and p.type = 'PAID'),
+    l.next_due_date = (select min(p.dueDate) from payments p where p.loan_id = l.id and p.type = 'PENDING'),
+    l.outstanding_total = (select coalesce(sum(p.amount), 0) from payments p where p.loan_id = l.id and p.type = 'PENDING');
+
+update loans
+set outstanding_principal = amount - round(amount / timestampdiff(month, start_date, end_date), 2) * paid_count
+where timestampdiff(month, start_date, end_date) > 0;
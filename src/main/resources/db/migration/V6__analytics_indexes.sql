@@ -0,0 +1,8 @@
+-- Range scans for the analytics projections: pending payments by due date, paid payments by paid date and
+-- loans by start month. The type-prefixed payment indexes replace idx_payments_type.
+
+create index idx_payments_type_due_date on payments (type, dueDate);
+create index idx_payments_type_paid_date on payments (type, paidDate);
+drop index idx_payments_type on payments;
+
+create index idx_loans_start_date_status on loans (start_date, status);
@@ -0,0 +1,80 @@
+package org.example.cache;
+
+import org.example.dto.EligibilitySnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DebtorExposureCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<Long, EligibilitySnapshot> loader = debtorId -> {
+        loads.incrementAndGet();
+        return new EligibilitySnapshot(BigDecimal.valueOf(1000), 1, 0);
+    };
+
+    @Test
+    public void readThroughTest() {
+        DebtorExposureCache cache = new DebtorExposureCache(10, Duration.ofMinutes(5));
+
+        cache.get(1L, loader);
+        cache.get(1L, loader);
+
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.getStats().hits());
+        assertEquals(1, cache.getStats().misses());
+    }
+
+    @Test
+    public void adjustTest() {
+        DebtorExposureCache cache = new DebtorExposureCache(10, Duration.ofMinutes(5));
+        cache.get(1L, loader);
+
+        cache.adjust(1L, snapshot -> snapshot.withNewActiveLoan(BigDecimal.valueOf(500)));
+        EligibilitySnapshot snapshot = cache.get(1L, loader);
+
+        assertEquals(1, loads.get());
+        assertEquals(0, BigDecimal.valueOf(1500).compareTo(snapshot.activeDebt()));
+        assertEquals(2, snapshot.activeLoans());
+    }
+
+    @Test
+    public void invalidateTest() {
+        DebtorExposureCache cache = new DebtorExposureCache(10, Duration.ofMinutes(5));
+        cache.get(1L, loader);
+
+        cache.invalidate(1L);
+        cache.get(1L, loader);
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void lruEvictionTest() {
+        DebtorExposureCache cache = new DebtorExposureCache(2, Duration.ofMinutes(5));
+        cache.get(1L, loader);
+        cache.get(2L, loader);
+        cache.get(1L, loader);
+        cache.get(3L, loader);
+
+        cache.get(1L, loader);
+        assertEquals(3, loads.get());
+        cache.get(2L, loader);
+        assertEquals(4, loads.get());
+        assertEquals(2, cache.getStats().size());
+    }
+
+    @Test
+    public void expiredEntryIsReloadedTest() {
+        DebtorExposureCache cache = new DebtorExposureCache(10, Duration.ZERO);
+        cache.get(1L, loader);
+        cache.get(1L, loader);
+
+        assertEquals(2, loads.get());
+    }
+}
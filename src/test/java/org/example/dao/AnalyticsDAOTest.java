@@ -0,0 +1,179 @@
+package org.example.dao;
+
+import org.example.config.HibernateUtil;
+import org.example.constants.LoanStatus;
+import org.example.dao.impl.AnalyticsDAOImpl;
+import org.example.dao.impl.LoanDAOImpl;
+import org.example.dao.impl.PaymentDAOImpl;
+import org.example.dao.impl.UserDAOImpl;
+import org.example.dto.CashFlowBucket;
+import org.example.dto.CreditorOutstanding;
+import org.example.dto.InterestEarned;
+import org.example.dto.LoanDTO;
+import org.example.dto.MonthlyDefaultRate;
+import org.example.model.Loan;
+import org.example.model.User;
+import org.example.service.LoanBalances;
+import org.example.service.LoanService;
+import org.example.service.PaymentService;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class AnalyticsDAOTest {
+
+    private static SessionFactory sessionFactory;
+    private static UserDAO userDAO;
+    private static AnalyticsDAO analyticsDAO;
+    private static LoanService loanService;
+    private static PaymentService paymentService;
+
+    private TestData testData;
+
+    @BeforeAll
+    public static void setUp() {
+        sessionFactory = HibernateUtil.getSessionFactory();
+        userDAO = new UserDAOImpl(sessionFactory);
+        analyticsDAO = new AnalyticsDAOImpl(sessionFactory);
+        loanService = new LoanService(new LoanDAOImpl(sessionFactory));
+        paymentService = new PaymentService(new PaymentDAOImpl(sessionFactory), loanService);
+    }
+
+    @BeforeEach
+    public void initData() {
+        cleanup();
+        testData = createData();
+    }
+
+    private static TestData createData() {
+        TestData td = new TestData();
+
+        td.creditor = createUser("creditorName", "creditorLastName", "0997655456", "creditor@gmail.com");
+        td.creditor1 = createUser("creditorName1", "creditorLastName1", "0997655458", "creditor1@gmail.com");
+        td.debtor = createUser("debtorName", "debtorLastName", "0987655459", "debtor@gmail.com");
+
+        td.loan = createLoan(td.creditor, td.debtor, new BigDecimal("12000"), 12);
+        td.loan1 = createLoan(td.creditor, td.debtor, new BigDecimal("6000"), 6);
+        td.loan2 = createLoan(td.creditor1, td.debtor, new BigDecimal("3000"), 3);
+
+        paymentService.paidPayment(td.loan.getPayments().get(0));
+        loanService.updateLoanStatus(td.loan2, LoanStatus.DEFAULTED);
+        return td;
+    }
+
+    private static User createUser(String firstName, String lastName, String phone, String email) {
+        User user = User.builder()
+                .firstName(firstName)
+                .lastName(lastName)
+                .phoneNumber(phone)
+                .email(email)
+                .build();
+        userDAO.save(user);
+        return user;
+    }
+
+    private static Loan createLoan(User creditor, User debtor, BigDecimal amount, int term) {
+        LoanDTO dto = new LoanDTO();
+        dto.setCreditor(creditor);
+        dto.setDebtor(debtor);
+        dto.setAmount(amount);
+        dto.setTerm(term);
+        dto.setInterestRate(new BigDecimal("0.12"));
+        return loanService.createLoan(dto, paymentService);
+    }
+
+    @Test
+    public void outstandingByCreditorTest() {
+        List<CreditorOutstanding> rows = analyticsDAO.outstandingByCreditor();
+        assertEquals(2, rows.size());
+
+        CreditorOutstanding creditor = rows.get(0);
+        assertEquals(testData.creditor.getId(), creditor.creditorId());
+        assertEquals(2, creditor.activeLoans());
+        assertEquals(0, creditor.defaultedLoans());
+        assertEquals(0, new BigDecimal("17000.00").compareTo(creditor.outstandingPrincipal()));
+
+        CreditorOutstanding creditor1 = rows.get(1);
+        assertEquals(1, creditor1.defaultedLoans());
+        assertEquals(0, new BigDecimal("3000.00").compareTo(creditor1.defaultedPrincipal()));
+    }
+
+    @Test
+    public void outstandingForCreditorTest() {
+        CreditorOutstanding outstanding = analyticsDAO.outstandingForCreditor(testData.creditor.getId());
+        assertEquals(0, testData.loan.getOutstandingTotal().add(testData.loan1.getOutstandingTotal())
+                .compareTo(outstanding.outstandingTotal()));
+
+        assertNull(analyticsDAO.outstandingForCreditor(testData.debtor.getId()));
+    }
+
+    @Test
+    public void defaultRateByStartMonthTest() {
+        YearMonth month = YearMonth.now();
+        List<MonthlyDefaultRate> rates = analyticsDAO.defaultRateByStartMonth(month.atDay(1), month.plusMonths(1).atDay(1));
+
+        assertEquals(1, rates.size());
+        assertEquals(month, rates.get(0).yearMonth());
+        assertEquals(3, rates.get(0).loans());
+        assertEquals(1, rates.get(0).defaultedLoans());
+    }
+
+    @Test
+    public void expectedCashFlowByDueMonthTest() {
+        LocalDate from = LocalDate.now();
+        List<CashFlowBucket> buckets = analyticsDAO.expectedCashFlowByDueMonth(from, from.plusYears(2));
+
+        assertEquals(12, buckets.size());
+        assertEquals(17, buckets.stream().mapToLong(CashFlowBucket::payments).sum());
+        BigDecimal expected = buckets.stream().map(CashFlowBucket::expectedAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertEquals(0, testData.loan.getOutstandingTotal().add(testData.loan1.getOutstandingTotal()).compareTo(expected));
+    }
+
+    @Test
+    public void interestEarnedByCreditorTest() {
+        LocalDate today = LocalDate.now();
+        List<InterestEarned> earned = analyticsDAO.interestEarnedByCreditor(today, today.plusDays(1));
+
+        assertEquals(1, earned.size());
+        InterestEarned row = earned.get(0);
+        assertEquals(testData.creditor.getId(), row.creditorId());
+        assertEquals(1, row.payments());
+        BigDecimal installment = testData.loan.getPayments().get(0).getAmount();
+        assertEquals(0, installment.subtract(LoanBalances.monthlyPrincipal(testData.loan)).compareTo(row.interestEarned()));
+    }
+
+    @AfterAll
+    public static void cleanup() {
+        try (var session = sessionFactory.openSession()) {
+            var tx = session.beginTransaction();
+            try {
+                session.createQuery("DELETE FROM Payment").executeUpdate();
+                session.createQuery("DELETE FROM Loan").executeUpdate();
+                session.createQuery("DELETE FROM User").executeUpdate();
+                tx.commit();
+            } catch (Exception e) {
+                tx.rollback();
+                throw e;
+            }
+        }
+    }
+
+    static class TestData {
+        User creditor;
+        User creditor1;
+        User debtor;
+        Loan loan;
+        Loan loan1;
+        Loan loan2;
+    }
+}
@@ -3,27 +3,47 @@ package org.example.dao;
 import org.example.config.HibernateUtil;
 import org.example.constants.LoanStatus;
 import org.example.dao.impl.LoanDAOImpl;
+import org.example.dao.impl.PaymentDAOImpl;
 import org.example.dao.impl.UserDAOImpl;
+import org.example.dto.EligibilitySnapshot;
+import org.example.dto.LoanBalance;
+import org.example.dto.OverdueSweepResult;
 import org.example.model.Loan;
+import org.example.model.Payment;
 import org.example.model.User;
+import org.example.service.LoanBalances;
+import org.example.service.LoanService;
+import org.example.service.PaymentService;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class LoanDAOTest {
 
     private static SessionFactory sessionFactory;
     private static UserDAO userDAO;
     private static LoanDAO loanDAO;
+    private static PaymentDAO paymentDAO;
+    private static PaymentService paymentService;
 
     private TestData testData;
 
@@ -32,6 +52,8 @@ public class LoanDAOTest {
         sessionFactory = HibernateUtil.getSessionFactory();
         userDAO = new UserDAOImpl(sessionFactory);
         loanDAO = new LoanDAOImpl(sessionFactory);
+        paymentDAO = new PaymentDAOImpl(sessionFactory);
+        paymentService = new PaymentService(paymentDAO, new LoanService(loanDAO));
     }
 
     @BeforeEach
@@ -80,6 +102,12 @@ public class LoanDAOTest {
         return loan;
     }
 
+    private static List<Payment> saveSchedule(Loan loan) {
+        List<Payment> schedule = paymentDAO.saveAll(paymentService.generateDifferentiatedSchedule(loan));
+        assertTrue(loanDAO.setBalance(loan.getId(), loan.getVersion(), LoanBalances.compute(loan, schedule)));
+        return schedule;
+    }
+
     @Test
     public void getLoansByCreditorIdTest() {
 
@@ -88,6 +116,18 @@ public class LoanDAOTest {
         assertEquals(1, loansByCreditorId.size());
     }
 
+    @Test
+    public void getLoansByCreditorAndStatusStartedBetweenTest() {
+        List<Loan> loans = loanDAO.getLoansByCreditorAndStatusStartedBetween(testData.creditor1.getId(), LoanStatus.ACTIVE,
+                LocalDate.now().minusDays(1), LocalDate.now().plusDays(1));
+        assertEquals(1, loans.size());
+        assertEquals(testData.loan1.getId(), loans.get(0).getId());
+
+        List<Loan> repaidLoans = loanDAO.getLoansByCreditorAndStatusStartedBetween(testData.creditor1.getId(), LoanStatus.REPAID,
+                LocalDate.now().minusMonths(1), LocalDate.now().plusDays(1));
+        assertEquals(0, repaidLoans.size());
+    }
+
     @Test
     public void getLoanByDebtorIdAndStatusTest() {
 
@@ -103,6 +143,19 @@ public class LoanDAOTest {
         assertEquals(0, sum.compareTo(BigDecimal.valueOf(100000.00)));
     }
 
+    @Test
+    public void getEligibilitySnapshotTest() {
+        EligibilitySnapshot snapshot = loanDAO.getEligibilitySnapshot(testData.debtor.getId());
+        assertNotNull(snapshot);
+        assertEquals(0, snapshot.activeDebt().compareTo(BigDecimal.valueOf(100000)));
+        assertEquals(2, snapshot.activeLoans());
+        assertTrue(snapshot.hasDefaultedLoans());
+
+        EligibilitySnapshot empty = loanDAO.getEligibilitySnapshot(testData.creditor.getId());
+        assertEquals(0, empty.activeDebt().compareTo(BigDecimal.ZERO));
+        assertEquals(0, empty.defaultedLoans());
+    }
+
     @Test
     public void almostExpiredLoansTest() {
         List<Loan> almostExpiredLoans = loanDAO.almostExpiredLoans();
@@ -117,11 +170,182 @@ public class LoanDAOTest {
         assertEquals(2, loansByStatus.size());
     }
 
+    @Test
+    public void saveAllTest() {
+        List<Loan> loans = List.of(
+                Loan.builder().amount(new BigDecimal("1000")).creditor(testData.creditor).debtor(testData.debtor)
+                        .startDate(LocalDate.now()).endDate(LocalDate.now().plusMonths(2))
+                        .interestRate(new BigDecimal("0.1")).status(LoanStatus.ACTIVE).build(),
+                Loan.builder().amount(new BigDecimal("2000")).creditor(testData.creditor).debtor(testData.debtor)
+                        .startDate(LocalDate.now()).endDate(LocalDate.now().plusMonths(3))
+                        .interestRate(new BigDecimal("0.1")).status(LoanStatus.ACTIVE).build());
+
+        List<Loan> savedLoans = loanDAO.saveAll(loans);
+        assertEquals(2, savedLoans.size());
+        savedLoans.forEach(loan -> assertNotNull(loan.getId()));
+        assertEquals(3, loanDAO.getLoansByCreditorId(testData.creditor.getId()).size());
+    }
+
+    @Test
+    public void markOverdueLoansDefaultedTest() {
+        Loan overdue = createLoan(new BigDecimal("1000"), testData.creditor, testData.debtor, LocalDate.now().minusMonths(2), LocalDate.now().minusDays(1), new BigDecimal("0.1"), LoanStatus.ACTIVE);
+        Loan overdue1 = createLoan(new BigDecimal("1000"), testData.creditor1, testData.debtor, LocalDate.now().minusMonths(3), LocalDate.now().minusDays(10), new BigDecimal("0.1"), LoanStatus.ACTIVE);
+
+        OverdueSweepResult result = loanDAO.markOverdueLoansDefaulted(LocalDate.now(), 1);
+        assertEquals(2, result.updatedCount());
+        assertEquals(List.of(overdue.getId(), overdue1.getId()), result.loanIds());
+        assertEquals(LoanStatus.DEFAULTED, loanDAO.findById(overdue.getId()).getStatus());
+        assertEquals(2, loanDAO.getAllLoansByStatus(LoanStatus.ACTIVE).size());
+
+        assertThrows(IllegalArgumentException.class, () -> loanDAO.markOverdueLoansDefaulted(LocalDate.now(), 0));
+    }
+
+    @Test
+    public void findWithPaymentsTest() {
+        List<Loan> loans = loanDAO.findWithPayments(List.of(testData.loan.getId(), testData.loan2.getId()));
+        assertEquals(2, loans.size());
+        loans.forEach(loan -> assertTrue(loan.getPayments().isEmpty()));
+        assertTrue(loanDAO.findWithPayments(List.of()).isEmpty());
+    }
+
+    @Test
+    public void findByIdWithPaymentsTest() {
+        Loan loan = loanDAO.findByIdWithPayments(testData.loan1.getId());
+        assertEquals(testData.loan1.getId(), loan.getId());
+        assertTrue(Hibernate.isInitialized(loan.getPayments()));
+    }
+
+    @Test
+    public void findPageTest() {
+        List<Loan> firstPage = loanDAO.findPage(null, 3);
+        assertEquals(3, firstPage.size());
+
+        List<Loan> secondPage = loanDAO.findPage(firstPage.get(2).getId(), 3);
+        assertEquals(1, secondPage.size());
+        assertEquals(testData.loan3.getId(), secondPage.get(0).getId());
+    }
+
+    @Test
+    public void getLoanIdsByStatusPageTest() {
+        List<Long> firstPage = loanDAO.getLoanIdsByStatusPage(LoanStatus.ACTIVE, null, 1);
+        assertEquals(List.of(testData.loan.getId()), firstPage);
+
+        assertEquals(List.of(testData.loan1.getId()), loanDAO.getLoanIdsByStatusPage(LoanStatus.ACTIVE, firstPage.get(0), 5));
+        assertTrue(loanDAO.getLoanIdsByStatusPage(LoanStatus.ACTIVE, testData.loan1.getId(), 5).isEmpty());
+    }
+
+    @Test
+    public void getLoanIdsWithOverduePaymentsPageTest() {
+        LocalDate firstDueDate = saveSchedule(testData.loan1).get(0).getDueDate();
+
+        assertTrue(loanDAO.getLoanIdsWithOverduePaymentsPage(firstDueDate, null, 5).isEmpty());
+        assertEquals(List.of(testData.loan1.getId()), loanDAO.getLoanIdsWithOverduePaymentsPage(firstDueDate.plusDays(1), null, 1));
+        assertTrue(loanDAO.getLoanIdsWithOverduePaymentsPage(firstDueDate.plusDays(1), testData.loan1.getId(), 5).isEmpty());
+    }
+
+    @Test
+    public void streamLoansByStatusTest() {
+        try (Stream<Loan> loans = loanDAO.streamLoansByStatus(LoanStatus.ACTIVE, 1)) {
+            assertEquals(List.of(testData.loan.getId(), testData.loan1.getId()), loans.map(Loan::getId).toList());
+        }
+    }
+
+    @Test
+    public void setBalanceTest() {
+        List<Payment> schedule = paymentService.generateDifferentiatedSchedule(testData.loan1);
+        LoanBalance balance = LoanBalances.compute(testData.loan1, schedule);
+
+        assertTrue(loanDAO.setBalance(testData.loan1.getId(), testData.loan1.getVersion(), balance));
+        assertFalse(loanDAO.setBalance(testData.loan1.getId(), testData.loan1.getVersion(), balance));
+        assertFalse(loanDAO.setBalance(-1L, 0L, balance));
+
+        Loan stored = loanDAO.findById(testData.loan1.getId());
+        assertTrue(balance.sameAs(LoanBalance.of(stored)));
+        assertEquals(Long.valueOf(testData.loan1.getVersion() + 1), stored.getVersion());
+    }
+
+    @Test
+    public void lockVersionTest() {
+        Long version = loanDAO.findById(testData.loan1.getId()).getVersion();
+
+        assertTrue(loanDAO.lockVersion(testData.loan1.getId(), version));
+        assertFalse(loanDAO.lockVersion(testData.loan1.getId(), version));
+        assertFalse(loanDAO.lockVersion(-1L, 0L));
+
+        assertEquals(Long.valueOf(version + 1), loanDAO.findById(testData.loan1.getId()).getVersion());
+    }
+
+    @Test
+    public void recordPaidPaymentsTest() {
+        List<Payment> schedule = saveSchedule(testData.loan1);
+        BigDecimal monthlyPrincipal = LoanBalances.monthlyPrincipal(testData.loan1);
+        Payment first = schedule.get(0);
+        Payment second = schedule.get(1);
+
+        assertTrue(paymentDAO.markPaid(first.getId(), first.getDueDate()));
+        loanDAO.recordPaidPayments(testData.loan1.getId(), 1, first.getAmount(), monthlyPrincipal, first.getDueDate());
+        new TransactionTemplate(sessionFactory).inTransaction(() -> {
+            assertTrue(paymentDAO.markPaid(second.getId(), second.getDueDate().plusDays(3)));
+            loanDAO.recordPaidPayments(testData.loan1.getId(), 1, second.getAmount(), monthlyPrincipal,
+                    second.getDueDate().plusDays(3));
+        });
+
+        Loan stored = loanDAO.findByIdWithPayments(testData.loan1.getId());
+        assertTrue(LoanBalances.compute(stored, stored.getPayments()).sameAs(LoanBalance.of(stored)));
+        assertEquals(2, stored.getPaidCount());
+        assertEquals(second.getDueDate().plusDays(3), stored.getLastPaidDate());
+        assertEquals(schedule.get(2).getDueDate(), stored.getNextDueDate());
+    }
+
+    @Test
+    public void adjustOutstandingTotalTest() {
+        saveSchedule(testData.loan1);
+        Loan before = loanDAO.findById(testData.loan1.getId());
+
+        loanDAO.adjustOutstandingTotal(testData.loan1.getId(), new BigDecimal("12.34"));
+
+        Loan after = loanDAO.findById(testData.loan1.getId());
+        assertEquals(0, before.getOutstandingTotal().add(new BigDecimal("12.34")).compareTo(after.getOutstandingTotal()));
+        assertEquals(Long.valueOf(before.getVersion() + 1), after.getVersion());
+    }
+
+    @Test
+    public void runningBalancesBackfillTest() throws IOException {
+        List<Payment> schedule = saveSchedule(testData.loan1);
+        Payment first = schedule.get(0);
+        assertTrue(paymentDAO.markPaid(first.getId(), first.getDueDate()));
+        loanDAO.recordPaidPayments(testData.loan1.getId(), 1, first.getAmount(),
+                LoanBalances.monthlyPrincipal(testData.loan1), first.getDueDate());
+        LoanBalance maintained = LoanBalance.of(loanDAO.findById(testData.loan1.getId()));
+
+        String migration;
+        try (InputStream input = LoanDAOTest.class.getResourceAsStream("/db/migration/V5__loan_running_balances.sql")) {
+            migration = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        List<String> backfill = Arrays.stream(migration.replaceAll("(?m)^--.*$", "").split(";"))
+                .map(String::trim)
+                .filter(statement -> statement.startsWith("update"))
+                .toList();
+        assertEquals(2, backfill.size());
+        new TransactionTemplate(sessionFactory).inTransaction(() -> {
+            Session session = sessionFactory.getCurrentSession();
+            session.createNativeMutationQuery("""
+            update loans set outstanding_principal = null, outstanding_total = null, paid_count = 0,
+            last_paid_date = null, next_due_date = null""").executeUpdate();
+            backfill.forEach(statement -> session.createNativeMutationQuery(statement).executeUpdate());
+        });
+
+        Loan stored = loanDAO.findByIdWithPayments(testData.loan1.getId());
+        assertTrue(maintained.sameAs(LoanBalance.of(stored)));
+        assertTrue(LoanBalances.compute(stored, stored.getPayments()).sameAs(LoanBalance.of(stored)));
+    }
+
     @AfterAll
     public static void cleanup() {
         try (var session = sessionFactory.openSession()) {
             var tx = session.beginTransaction();
             try {
+                session.createQuery("DELETE FROM Payment").executeUpdate();
                 session.createQuery("DELETE FROM Loan").executeUpdate();
                 session.createQuery("DELETE FROM User").executeUpdate();
                 tx.commit();
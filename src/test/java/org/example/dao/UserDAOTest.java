@@ -19,6 +19,9 @@ import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class UserDAOTest {
 
@@ -112,6 +115,40 @@ public class UserDAOTest {
 
     }
 
+    @Test
+    public void inTransactionSharesSessionTest() {
+        User creditor = (User) data().get(0);
+        TransactionTemplate transactions = new TransactionTemplate(sessionFactory);
+
+        transactions.inTransaction(() -> {
+            User first = userDAO.findById(creditor.getId());
+            first.setLastName("SharedSession");
+            assertSame(first, userDAO.findById(creditor.getId()));
+            assertSame(first, userDAO.update(first));
+        });
+
+        assertEquals("SharedSession", userDAO.findById(creditor.getId()).getLastName());
+    }
+
+    @Test
+    public void inTransactionRollsBackTest() {
+        data();
+        TransactionTemplate transactions = new TransactionTemplate(sessionFactory);
+        User user = User.builder()
+                .firstName("RolledBack")
+                .lastName("RolledBack")
+                .phoneNumber("0987655000")
+                .email("rolled@gmail.com")
+                .build();
+
+        assertThrows(IllegalStateException.class, () -> transactions.inTransaction(() -> {
+            userDAO.save(user);
+            throw new IllegalStateException("abort");
+        }));
+
+        assertNull(userDAO.findById(user.getId()));
+    }
+
     @AfterAll
     public static void cleanup() {
         var session = sessionFactory.openSession();
@@ -0,0 +1,77 @@
+package org.example.job;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class JobSchedulerTest {
+
+    private JobScheduler jobScheduler;
+
+    @BeforeEach
+    public void setUp() {
+        jobScheduler = new JobScheduler(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jobScheduler.shutdown(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void runsDoNotOverlapTest() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executions = new AtomicInteger();
+
+        jobScheduler.schedule("slow", Duration.ZERO, Duration.ofHours(1), () -> {
+            executions.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        jobScheduler.runNow("slow");
+        Thread.sleep(200);
+        release.countDown();
+        jobScheduler.shutdown(Duration.ofSeconds(5));
+
+        JobMetrics.Snapshot snapshot = jobScheduler.getMetrics().get(0);
+        assertEquals(1, executions.get());
+        assertEquals(1, snapshot.runs());
+        assertEquals(1, snapshot.skipped());
+    }
+
+    @Test
+    public void failedRunIsRecordedTest() throws InterruptedException {
+        CountDownLatch finished = new CountDownLatch(1);
+        jobScheduler.schedule("failing", Duration.ZERO, Duration.ofHours(1), () -> {
+            finished.countDown();
+            throw new IllegalStateException("boom");
+        });
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        jobScheduler.shutdown(Duration.ofSeconds(5));
+
+        JobMetrics.Snapshot snapshot = jobScheduler.getMetrics().get(0);
+        assertEquals(1, snapshot.runs());
+        assertEquals(1, snapshot.failures());
+    }
+
+    @Test
+    public void duplicateJobNameTest() {
+        jobScheduler.schedule("job", Duration.ofHours(1), Duration.ofHours(1), () -> { });
+        assertThrows(IllegalArgumentException.class,
+                () -> jobScheduler.schedule("job", Duration.ofHours(1), Duration.ofHours(1), () -> { }));
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.lock;
+
+import org.example.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoanLocksTest {
+
+    private final MetricsRegistry metrics = new MetricsRegistry(true);
+
+    @Test
+    public void sameLoanIsSerializedTest() throws Exception {
+        LoanLocks locks = new LoanLocks(16, Duration.ofSeconds(10), metrics);
+        int[] counter = new int[1];
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 10_000; j++) {
+                        locks.withLock(42L, () -> counter[0]++);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(80_000, counter[0]);
+    }
+
+    @Test
+    public void differentLoansRunInParallelTest() throws Exception {
+        LoanLocks locks = new LoanLocks(64, Duration.ofSeconds(10), metrics);
+        long otherLoan = 2L;
+        while (locks.stripeFor(otherLoan) == locks.stripeFor(1L)) {
+            otherLoan++;
+        }
+        long secondLoan = otherLoan;
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread holder = new Thread(() -> locks.withLock(1L, () -> {
+            held.countDown();
+            awaitQuietly(release);
+        }));
+        holder.start();
+        assertTrue(held.await(5, TimeUnit.SECONDS));
+
+        assertEquals("free", locks.withLock(secondLoan, () -> "free"));
+        assertNull(metrics.counterValues().get("locks.loan.contended"));
+
+        release.countDown();
+        holder.join();
+    }
+
+    @Test
+    public void contentionIsMeasuredAndBoundedTest() throws Exception {
+        LoanLocks locks = new LoanLocks(4, Duration.ofMillis(50), metrics);
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread holder = new Thread(() -> locks.withLock(7L, () -> {
+            held.countDown();
+            awaitQuietly(release);
+        }));
+        holder.start();
+        assertTrue(held.await(5, TimeUnit.SECONDS));
+
+        assertThrows(IllegalStateException.class, () -> locks.withLock(7L, () -> "late"));
+        release.countDown();
+        holder.join();
+
+        assertEquals(Long.valueOf(1), metrics.counterValues().get("locks.loan.contended"));
+        assertEquals(Long.valueOf(1), metrics.counterValues().get("locks.loan.timeouts"));
+        assertEquals(1, metrics.timerSnapshots().get("locks.loan.wait").count());
+        assertEquals(4, locks.stripes());
+    }
+
+    @Test
+    public void lockIsReentrantTest() {
+        LoanLocks locks = new LoanLocks(4, Duration.ofMillis(50), metrics);
+
+        assertEquals("nested", locks.withLock(3L, () -> locks.withLock(3L, () -> "nested")));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.metrics;
+
+import org.example.dao.UserDAO;
+import org.example.dao.impl.UserDAOImpl;
+import org.example.model.User;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void timerPercentilesTest() {
+        MetricsRegistry registry = new MetricsRegistry(true);
+        Timer timer = registry.timer("test");
+        for (int i = 1; i <= 1_000; i++) {
+            timer.record(i * 1_000_000L);
+        }
+
+        Timer.Snapshot snapshot = timer.snapshot();
+        assertEquals(1_000, snapshot.count());
+        assertEquals(1_000_000_000L, snapshot.max().toNanos());
+        assertEquals(500_000_000L, snapshot.p50().toNanos(), 500_000_000L / 8.0);
+        assertEquals(990_000_000L, snapshot.p99().toNanos(), 990_000_000L / 8.0);
+    }
+
+    @Test
+    public void disabledRegistryIsNoOpTest() {
+        MetricsRegistry registry = MetricsRegistry.disabled();
+        UserDAO dao = new UserDAOImpl(null);
+
+        try (MetricsRegistry.Sample ignored = registry.start("test")) {
+            registry.increment("test.rows", 1);
+        }
+
+        assertSame(dao, InstrumentedProxy.wrap(UserDAO.class, dao, registry, "dao.user"));
+        assertTrue(registry.timerSnapshots().isEmpty());
+        assertTrue(registry.counterValues().isEmpty());
+    }
+
+    @Test
+    public void timeRecordsReturnsAndFailuresTest() {
+        MetricsRegistry registry = new MetricsRegistry(true);
+
+        assertEquals("done", registry.time("test", () -> "done"));
+        assertThrows(IllegalStateException.class, () -> registry.time("test", () -> {
+            throw new IllegalStateException("failed");
+        }));
+
+        assertEquals(2, registry.timerSnapshots().get("test").count());
+    }
+
+    @Test
+    public void proxyTimesAndCountsRowsTest() {
+        MetricsRegistry registry = new MetricsRegistry(true);
+        UserDAO dao = InstrumentedProxy.wrap(UserDAO.class, new UserDAOImpl(null) {
+            @Override
+            public List<User> getUsersByKeyword(String keyword) {
+                return List.of(User.builder().id(1L).build(), User.builder().id(2L).build());
+            }
+        }, registry, "dao.user");
+
+        dao.getUsersByKeyword("a");
+        dao.getUsersByKeyword("b");
+        assertThrows(NullPointerException.class, () -> dao.findById(1L));
+
+        assertEquals(2, registry.timerSnapshots().get("dao.user.getUsersByKeyword").count());
+        assertEquals(Long.valueOf(4), registry.counterValues().get("dao.user.getUsersByKeyword.rows"));
+        assertEquals(Long.valueOf(1), registry.counterValues().get("dao.user.findById.errors"));
+        assertTrue(registry.dump().contains("timer dao.user.getUsersByKeyword count=2"));
+    }
+
+    @Test
+    public void jmxExportTest() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry(true);
+        registry.timer("service.loan.createLoan").record(2_000_000L);
+        registry.registerMBean("org.example:type=MetricsTest");
+        try {
+            ObjectName name = new ObjectName("org.example:type=MetricsTest");
+            assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "service.loan.createLoan.count"));
+            assertTrue(((String) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "dump")).contains("createLoan"));
+        } finally {
+            registry.unregisterMBean();
+        }
+    }
+}
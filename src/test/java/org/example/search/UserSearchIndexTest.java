@@ -0,0 +1,77 @@
+package org.example.search;
+
+import org.example.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UserSearchIndexTest {
+
+    private final UserSearchIndex index = new UserSearchIndex(1_000);
+
+    @Test
+    public void prefixSearchTest() {
+        index.index(user(1L, "Olena", "Kovalenko", "olena.k@gmail.com", "+380 99 765 5456"));
+        index.index(user(2L, "Oleh", "Shevchenko", "oleh@ukr.net", "0987655459"));
+        index.index(user(3L, "Ivan", "Olenko", "ivan@gmail.com", "0661112233"));
+
+        assertEquals(List.of(1L, 2L, 3L), ids(index.search("ole", 10)));
+        assertEquals(List.of(1L), ids(index.search("olena kov", 10)));
+        assertEquals(List.of(1L), ids(index.search("099765", 10)));
+        assertEquals(List.of(2L), ids(index.search("oleh@ukr", 10)));
+        assertEquals(List.of(1L, 3L), ids(index.search("gmail", 10)));
+        assertTrue(index.search("petro", 10).isEmpty());
+    }
+
+    @Test
+    public void exactNameRanksFirstTest() {
+        index.index(user(1L, "Anastasia", "Bondar", "a@x.com", "1"));
+        index.index(user(2L, "Ana", "Melnyk", "m@x.com", "2"));
+
+        assertEquals(List.of(2L, 1L), ids(index.search("ana", 10)));
+        assertEquals(List.of(2L), ids(index.search("ana", 1)));
+    }
+
+    @Test
+    public void reindexReplacesTokensTest() {
+        index.index(user(1L, "Olena", "Kovalenko", "olena@gmail.com", "0997655456"));
+        index.index(user(1L, "Olena", "Bondarenko", "olena@gmail.com", "0997655456"));
+
+        assertTrue(index.search("kovalenko", 10).isEmpty());
+        assertEquals(List.of(1L), ids(index.search("bond", 10)));
+        assertEquals(1, index.size());
+
+        index.remove(1L);
+        assertTrue(index.search("olena", 10).isEmpty());
+        assertEquals(0, index.postingCount());
+    }
+
+    @Test
+    public void rareTermIsFoundPastCandidateCapTest() {
+        UserSearchIndex capped = new UserSearchIndex(10);
+        for (long id = 1; id <= 100; id++) {
+            capped.index(user(id, "Olena", "Shevchenko" + id, "olena" + id + "@gmail.com", String.valueOf(id)));
+        }
+        capped.index(user(101L, "Olena", "Kovalenko", "o.k@ukr.net", "101"));
+
+        assertEquals(List.of(101L), ids(capped.search("olena kov", 10)));
+        assertEquals(List.of(101L), ids(capped.search("kovalenko olena", 10)));
+        assertEquals(10, capped.search("olena", 50).size());
+    }
+
+    private static List<Long> ids(List<UserSearchIndex.Hit> hits) {
+        return hits.stream().map(UserSearchIndex.Hit::userId).toList();
+    }
+
+    private static User user(Long id, String firstName, String lastName, String email, String phone) {
+        return User.builder()
+                .id(id)
+                .firstName(firstName)
+                .lastName(lastName)
+                .email(email)
+                .phoneNumber(phone)
+                .build();
+    }
+}
@@ -0,0 +1,57 @@
+package org.example.service;
+
+import org.example.dao.impl.UserDAOImpl;
+import org.example.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncServicesTest {
+
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    private final UserService userService = new UserService(new UserDAOImpl(null) {
+        @Override
+        public User findById(Long id) {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            return id < 0 ? null : User.builder().id(id).build();
+        }
+    });
+
+    @Test
+    public void concurrencyIsBoundedTest() {
+        try (AsyncServices asyncServices = new AsyncServices(null, null, userService, 3)) {
+            List<CompletableFuture<User>> users = LongStream.rangeClosed(1, 20)
+                    .mapToObj(asyncServices::getUserById)
+                    .toList();
+
+            CompletableFuture.allOf(users.toArray(CompletableFuture[]::new)).join();
+
+            assertEquals(20, users.stream().map(CompletableFuture::join).map(User::getId).distinct().count());
+            assertTrue(maxRunning.get() > 1);
+            assertTrue(maxRunning.get() <= 3);
+        }
+    }
+
+    @Test
+    public void failureCompletesExceptionallyTest() {
+        try (AsyncServices asyncServices = new AsyncServices(null, null, userService, 1)) {
+            CompletionException e = assertThrows(CompletionException.class, () -> asyncServices.getUserById(-1L).join());
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.example.service;
+
+import org.example.config.HibernateUtil;
+import org.example.constants.LoanStatus;
+import org.example.constants.PaymentType;
+import org.example.dao.LoanDAO;
+import org.example.dao.UserDAO;
+import org.example.dao.impl.LoanDAOImpl;
+import org.example.dao.impl.PaymentDAOImpl;
+import org.example.dao.impl.UserDAOImpl;
+import org.example.dto.BalanceCheckReport;
+import org.example.dto.LoanBalance;
+import org.example.model.Loan;
+import org.example.model.Payment;
+import org.example.model.User;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LoanBalanceCheckerTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 10);
+
+    private static SessionFactory sessionFactory;
+    private static UserDAO userDAO;
+    private static LoanDAO loanDAO;
+    private static PaymentService paymentService;
+    private static LoanBalanceChecker checker;
+
+    private TestData testData;
+
+    @BeforeAll
+    public static void setUp() {
+        sessionFactory = HibernateUtil.getSessionFactory();
+        userDAO = new UserDAOImpl(sessionFactory);
+        loanDAO = new LoanDAOImpl(sessionFactory);
+        LoanService loanService = new LoanService(loanDAO);
+        paymentService = new PaymentService(new PaymentDAOImpl(sessionFactory), loanService);
+        checker = new LoanBalanceChecker(loanDAO, loanService.getLoanLocks(), 2, 10);
+    }
+
+    @BeforeEach
+    public void initData() {
+        cleanup();
+        testData = createData();
+    }
+
+    private static TestData createData() {
+        TestData td = new TestData();
+
+        td.creditor = createUser("creditorName", "creditorLastName", "0997655456", "creditor@gmail.com");
+        td.debtor = createUser("debtorName", "debtorLastName", "0987655459", "debtor@gmail.com");
+
+        td.loan = createLoan(td.creditor, td.debtor);
+        td.loan1 = createLoan(td.creditor, td.debtor);
+        td.loan2 = createLoan(td.creditor, td.debtor);
+        return td;
+    }
+
+    private static User createUser(String firstName, String lastName, String phone, String email) {
+        User user = User.builder()
+                .firstName(firstName)
+                .lastName(lastName)
+                .phoneNumber(phone)
+                .email(email)
+                .build();
+        userDAO.save(user);
+        return user;
+    }
+
+    private static Loan createLoan(User creditor, User debtor) {
+        Loan loan = Loan.builder()
+                .amount(new BigDecimal("12000"))
+                .creditor(creditor)
+                .debtor(debtor)
+                .interestRate(new BigDecimal("0.12"))
+                .startDate(START)
+                .endDate(START.plusMonths(12))
+                .status(LoanStatus.ACTIVE)
+                .build();
+        loanDAO.save(loan);
+        loan.setPayments(paymentService.generateAndSaveSchedule(loan));
+        return loan;
+    }
+
+    private static void storeBalance(Long loanId, LoanBalance balance) {
+        assertTrue(loanDAO.setBalance(loanId, loanDAO.findById(loanId).getVersion(), balance));
+    }
+
+    @Test
+    public void incrementalBalanceMatchesRecomputedTest() {
+        Loan loan = testData.loan;
+        BigDecimal monthlyPrincipal = LoanBalances.monthlyPrincipal(loan);
+        for (int i = 0; i < 3; i++) {
+            Payment payment = loan.getPayments().get(i);
+            payment.setType(PaymentType.PAID);
+            payment.setPaidDate(payment.getDueDate().plusDays(i));
+            LoanBalances.recordPaidPayment(loan, payment, monthlyPrincipal);
+        }
+
+        LoanBalance expected = LoanBalances.compute(loan, loan.getPayments());
+        assertTrue(expected.sameAs(LoanBalance.of(loan)));
+        assertEquals(3, expected.paidCount());
+        assertEquals(START.plusMonths(4), expected.nextDueDate());
+        assertEquals(0, new BigDecimal("9000.00").compareTo(expected.outstandingPrincipal()));
+    }
+
+    @Test
+    public void checkReportsMismatchesTest() {
+        LoanBalance balance = LoanBalance.of(testData.loan1);
+        storeBalance(testData.loan1.getId(), new LoanBalance(balance.outstandingPrincipal(), BigDecimal.ONE,
+                balance.paidCount(), balance.lastPaidDate(), balance.nextDueDate()));
+        storeBalance(testData.loan2.getId(), new LoanBalance(balance.outstandingPrincipal(), balance.outstandingTotal(),
+                7, balance.lastPaidDate(), balance.nextDueDate()));
+
+        BalanceCheckReport report = checker.check(false);
+
+        assertEquals(3, report.loans());
+        assertEquals(2, report.mismatchedLoans());
+        assertEquals(0, report.repairedLoans());
+        assertEquals(0, report.skippedLoans());
+        assertEquals(List.of(testData.loan1.getId(), testData.loan2.getId()), report.mismatchedLoanIds());
+        assertEquals(7, loanDAO.findById(testData.loan2.getId()).getPaidCount());
+    }
+
+    @Test
+    public void checkRepairsMismatchesTest() {
+        LoanBalance balance = LoanBalance.of(testData.loan2);
+        storeBalance(testData.loan2.getId(), new LoanBalance(null, balance.outstandingTotal(), balance.paidCount(),
+                balance.lastPaidDate(), null));
+
+        BalanceCheckReport report = checker.check(true);
+
+        assertEquals(1, report.mismatchedLoans());
+        assertEquals(1, report.repairedLoans());
+        assertEquals(0, report.skippedLoans());
+        Loan repaired = loanDAO.findById(testData.loan2.getId());
+        assertEquals(START.plusMonths(1), repaired.getNextDueDate());
+        assertTrue(balance.sameAs(LoanBalance.of(repaired)));
+        assertEquals(0, checker.check(false).mismatchedLoans());
+    }
+
+    @AfterAll
+    public static void cleanup() {
+        try (var session = sessionFactory.openSession()) {
+            var tx = session.beginTransaction();
+            try {
+                session.createQuery("DELETE FROM Payment").executeUpdate();
+                session.createQuery("DELETE FROM Loan").executeUpdate();
+                session.createQuery("DELETE FROM User").executeUpdate();
+                tx.commit();
+            } catch (Exception e) {
+                tx.rollback();
+                throw e;
+            }
+        }
+    }
+
+    static class TestData {
+        User creditor;
+        User debtor;
+        Loan loan;
+        Loan loan1;
+        Loan loan2;
+    }
+}
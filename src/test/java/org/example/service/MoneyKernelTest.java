@@ -0,0 +1,180 @@
+package org.example.service;
+
+import org.example.constants.LoanStatus;
+import org.example.constants.PaymentType;
+import org.example.dao.impl.PaymentDAOImpl;
+import org.example.model.Loan;
+import org.example.model.Payment;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MoneyKernelTest {
+
+    private static final int LOANS = 2_000;
+
+    private final PaymentService paymentService = new PaymentService(new PaymentDAOImpl(null) {
+        @Override
+        public Payment update(Payment entity) {
+            return entity;
+        }
+
+        @Override
+        public List<Payment> updateAll(Collection<Payment> entities) {
+            return new ArrayList<>(entities);
+        }
+    }, new LoanService(null));
+
+    @Test
+    public void scheduleMatchesBigDecimalTest() {
+        Random random = new Random(42);
+        for (int i = 0; i < LOANS; i++) {
+            Loan loan = randomLoan(random);
+
+            List<BigDecimal> expected = referenceSchedule(loan);
+            List<Payment> actual = paymentService.generateDifferentiatedSchedule(loan);
+
+            assertEquals(expected.size(), actual.size(), describe(loan));
+            for (int j = 0; j < expected.size(); j++) {
+                assertEquals(expected.get(j), actual.get(j).getAmount(), describe(loan) + " installment " + j);
+            }
+        }
+    }
+
+    @Test
+    public void recalculationMatchesBigDecimalTest() {
+        Random random = new Random(7);
+        for (int i = 0; i < LOANS; i++) {
+            Loan loan = randomLoan(random);
+            List<Payment> schedule = paymentService.generateDifferentiatedSchedule(loan);
+            int paid = random.nextInt(schedule.size() + 1);
+            for (int j = 0; j < paid; j++) {
+                schedule.get(j).setType(PaymentType.PAID);
+                schedule.get(j).setPaidDate(schedule.get(j).getDueDate().plusDays(random.nextInt(90) - 30));
+            }
+            loan.setPayments(schedule);
+
+            List<BigDecimal> expected = referenceRecalculation(loan);
+            paymentService.recalculateRemainingSchedule(loan);
+
+            List<BigDecimal> actual = schedule.subList(paid, schedule.size()).stream().map(Payment::getAmount).toList();
+            assertEquals(expected, actual, describe(loan));
+        }
+    }
+
+    @Test
+    public void interestMatchesBigDecimalTest() {
+        Random random = new Random(3);
+        for (int i = 0; i < LOANS * 10; i++) {
+            BigDecimal principal = randomDecimal(random, 10_000_000_00L, 4);
+            BigDecimal rate = randomDecimal(random, 100_000, 6);
+            long days = random.nextInt(400) - 10;
+
+            assertEquals(referenceInterest(principal, rate, days), MoneyKernel.interest(principal, rate, days),
+                    principal + " * " + rate + " * " + days);
+        }
+    }
+
+    @Test
+    public void outOfRangeFallsBackToBigDecimalTest() {
+        BigDecimal principal = new BigDecimal("123456789012345678.123456");
+        BigDecimal rate = new BigDecimal("0.123456789012345");
+
+        assertEquals(referenceInterest(principal, rate, 31), MoneyKernel.interest(principal, rate, 31));
+        assertEquals(referenceInterest(new BigDecimal("5E+4"), rate, 31),
+                MoneyKernel.interest(new BigDecimal("5E+4"), rate, 31));
+    }
+
+    private Loan randomLoan(Random random) {
+        LocalDate startDate = LocalDate.of(2020, 1, 1).plusDays(random.nextInt(1_500));
+        return Loan.builder()
+                .amount(randomDecimal(random, 100_000_000L, 3))
+                .interestRate(randomDecimal(random, 5_000, 4))
+                .startDate(startDate)
+                .endDate(startDate.plusMonths(1 + random.nextInt(60)).plusDays(random.nextInt(28)))
+                .status(LoanStatus.ACTIVE)
+                .build();
+    }
+
+    private String describe(Loan loan) {
+        return loan.getAmount() + " at " + loan.getInterestRate() + " from " + loan.getStartDate() + " to " + loan.getEndDate();
+    }
+
+    private BigDecimal randomDecimal(Random random, long bound, int maxScale) {
+        return BigDecimal.valueOf(1 + (long) (random.nextDouble() * bound), random.nextInt(maxScale + 1));
+    }
+
+    // The BigDecimal implementation the kernel replaced, kept verbatim as the oracle.
+
+    private BigDecimal referenceInterest(BigDecimal principal, BigDecimal rate, long days) {
+        if (days <= 0 || principal.compareTo(BigDecimal.ZERO) <= 0) {
+            return BigDecimal.ZERO;
+        }
+        return principal
+                .multiply(rate)
+                .multiply(BigDecimal.valueOf(days))
+                .divide(BigDecimal.valueOf(365), RoundingMode.HALF_UP);
+    }
+
+    private List<BigDecimal> referenceSchedule(Loan loan) {
+        List<BigDecimal> schedule = new ArrayList<>();
+        BigDecimal remainingPrincipal = loan.getAmount();
+        int months = (int) ChronoUnit.MONTHS.between(loan.getStartDate(), loan.getEndDate());
+        BigDecimal monthlyPrincipal = loan.getAmount()
+                .divide(BigDecimal.valueOf(months), 2, RoundingMode.HALF_UP);
+        LocalDate paymentDate = loan.getStartDate().plusMonths(1);
+        LocalDate lastDate = loan.getStartDate();
+
+        for (int i = 0; i < months; i++) {
+            BigDecimal interest = referenceInterest(remainingPrincipal, loan.getInterestRate(),
+                    ChronoUnit.DAYS.between(lastDate, paymentDate));
+            schedule.add(monthlyPrincipal.add(interest).setScale(2, RoundingMode.HALF_UP));
+
+            remainingPrincipal = remainingPrincipal.subtract(monthlyPrincipal);
+            lastDate = paymentDate;
+            paymentDate = paymentDate.plusMonths(1);
+        }
+        return schedule;
+    }
+
+    private List<BigDecimal> referenceRecalculation(Loan loan) {
+        List<Payment> unpaid = loan.getPayments().stream()
+                .filter(payment -> payment.getType() == PaymentType.PENDING)
+                .sorted(Comparator.comparing(Payment::getDueDate))
+                .toList();
+        int totalMonths = (int) ChronoUnit.MONTHS.between(loan.getStartDate(), loan.getEndDate());
+        BigDecimal monthlyPrincipal = loan.getAmount()
+                .divide(BigDecimal.valueOf(totalMonths), 2, RoundingMode.HALF_UP);
+        List<Payment> paid = loan.getPayments().stream()
+                .filter(payment -> payment.getType() == PaymentType.PAID)
+                .toList();
+        LocalDate previousDate = paid.stream().map(Payment::getPaidDate).max(LocalDate::compareTo)
+                .orElse(loan.getStartDate());
+        BigDecimal currentPrincipal = loan.getAmount()
+                .subtract(monthlyPrincipal.multiply(BigDecimal.valueOf(paid.size())));
+
+        List<BigDecimal> amounts = new ArrayList<>();
+        for (Payment payment : unpaid) {
+            BigDecimal interest = referenceInterest(currentPrincipal, loan.getInterestRate(),
+                    ChronoUnit.DAYS.between(previousDate, payment.getDueDate()));
+            amounts.add(monthlyPrincipal.add(interest).setScale(2, RoundingMode.HALF_UP));
+
+            currentPrincipal = currentPrincipal.subtract(monthlyPrincipal);
+            if (currentPrincipal.compareTo(BigDecimal.ZERO) < 0) {
+                currentPrincipal = BigDecimal.ZERO;
+            }
+            previousDate = payment.getDueDate();
+        }
+        return amounts;
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.service;
+
+import jakarta.persistence.OptimisticLockException;
+import org.example.dao.TransactionTemplate;
+import org.hibernate.StaleObjectStateException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OptimisticRetryTest {
+
+    private final OptimisticRetry retry =
+            new OptimisticRetry(TransactionTemplate.none(), 4, Duration.ofMillis(1), Duration.ofMillis(5));
+
+    @Test
+    public void retriesLostVersionCheckTest() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retry.call("test", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new IllegalStateException("flush failed",
+                        new OptimisticLockException(new StaleObjectStateException("Payment", 1L)));
+            }
+            return "done";
+        });
+
+        assertEquals("done", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttemptsTest() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(OptimisticLockException.class, () -> retry.run("test", () -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockException("conflict");
+        }));
+        assertEquals(4, attempts.get());
+    }
+
+    @Test
+    public void otherFailuresAreNotRetriedTest() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> retry.run("test", () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("already paid");
+        }));
+        assertEquals(1, attempts.get());
+    }
+}
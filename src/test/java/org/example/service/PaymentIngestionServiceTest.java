@@ -0,0 +1,173 @@
+package org.example.service;
+
+import org.example.constants.LoanStatus;
+import org.example.constants.PaymentType;
+import org.example.dao.TransactionTemplate;
+import org.example.dao.impl.LoanDAOImpl;
+import org.example.dao.impl.PaymentDAOImpl;
+import org.example.dto.IngestionReport;
+import org.example.model.Loan;
+import org.example.model.Payment;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PaymentIngestionServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 10);
+
+    private final Map<Long, Loan> loans = new ConcurrentHashMap<>();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private final AtomicInteger writes = new AtomicInteger();
+    private final Map<Long, Integer> recordedPayments = new ConcurrentHashMap<>();
+    private final Set<Long> failingLoanIds = ConcurrentHashMap.newKeySet();
+
+    private final LoanDAOImpl loanDAO = new LoanDAOImpl(null) {
+        @Override
+        public List<Loan> findWithPayments(Collection<Long> loanIds) {
+            return loanIds.stream().map(loans::get).toList();
+        }
+
+        @Override
+        public boolean lockVersion(Long loanId, Long version) {
+            return true;
+        }
+
+        @Override
+        public void recordPaidPayments(Long loanId, int count, BigDecimal amount, BigDecimal principal, LocalDate paidDate) {
+            recordedPayments.merge(loanId, count, Integer::sum);
+        }
+    };
+
+    private final PaymentDAOImpl paymentDAO = new PaymentDAOImpl(null) {
+        @Override
+        public List<Payment> findPendingByLoanIdsAndDueDates(Collection<Long> loanIds, Collection<LocalDate> dueDates) {
+            lookups.incrementAndGet();
+            if (loanIds.stream().anyMatch(failingLoanIds::contains)) {
+                throw new IllegalStateException("lookup failed");
+            }
+            return loans.values().stream()
+                    .filter(loan -> loanIds.contains(loan.getId()))
+                    .flatMap(loan -> loan.getPayments().stream())
+                    .filter(payment -> payment.getType() == PaymentType.PENDING && dueDates.contains(payment.getDueDate()))
+                    .toList();
+        }
+
+        @Override
+        public List<Payment> updateAll(Collection<Payment> entities) {
+            writes.incrementAndGet();
+            return new ArrayList<>(entities);
+        }
+    };
+
+    private final PaymentService paymentService = new PaymentService(paymentDAO, new LoanService(loanDAO));
+    private final RepricingEngine repricingEngine = new RepricingEngine(loanDAO, paymentDAO, paymentService, 2, 10, 1);
+
+    @Test
+    public void ingestTest() {
+        Loan first = loan(1L);
+        Loan second = loan(2L);
+        BigDecimal installment = first.getPayments().get(0).getAmount();
+
+        String file = """
+                loanId,dueDate,amount,paidDate
+                1,2024-02-10,%1$s,2024-02-10
+                1,2024-03-10,%2$s,2024-03-20
+                2,2024-02-10,%1$s,2024-02-25
+                2,2024-02-10,%1$s,2024-02-25
+                3,2024-02-10,%1$s,2024-02-10
+                2,2024-03-10,1.00,2024-03-10
+                not-a-loan,2024-02-10,1.00
+                1,2024-02-10
+                2,2024-04-10,%3$s,2024-04-10
+                """.formatted(installment, first.getPayments().get(1).getAmount(),
+                second.getPayments().get(2).getAmount().add(BigDecimal.ONE));
+
+        IngestionReport report = new PaymentIngestionService(paymentDAO, loanDAO, repricingEngine, TransactionTemplate.none(), 3, 10)
+                .ingest(new StringReader(file));
+
+        assertEquals(9, report.lines());
+        assertEquals(3, report.appliedPayments());
+        assertEquals(6, report.rejectedLines());
+        assertEquals(List.of(5L, 6L, 7L, 8L, 9L, 10L),
+                report.rejections().stream().map(IngestionReport.Rejection::lineNumber).sorted().toList());
+        assertEquals(2, report.recalculatedLoans());
+        assertEquals(3, lookups.get());
+        assertEquals(Map.of(1L, 2, 2L, 1), recordedPayments);
+
+        assertEquals(PaymentType.PAID, first.getPayments().get(0).getType());
+        assertEquals(LocalDate.of(2024, 3, 20), first.getPayments().get(1).getPaidDate());
+        assertEquals(PaymentType.PAID, second.getPayments().get(0).getType());
+        assertEquals(PaymentType.PENDING, second.getPayments().get(1).getType());
+        assertEquals(PaymentType.PENDING, second.getPayments().get(2).getType());
+    }
+
+    @Test
+    public void failedBatchIsAppliedLoanByLoanTest() {
+        Loan first = loan(1L);
+        Loan second = loan(2L);
+        loan(3L);
+        failingLoanIds.add(2L);
+        BigDecimal installment = first.getPayments().get(0).getAmount();
+
+        String file = """
+                1,2024-02-10,%1$s,2024-02-10
+                2,2024-02-10,%1$s,2024-02-10
+                3,2024-02-10,%1$s,2024-02-10
+                """.formatted(installment);
+
+        IngestionReport report = new PaymentIngestionService(paymentDAO, loanDAO, repricingEngine, TransactionTemplate.none(), 10, 10)
+                .ingest(new StringReader(file));
+
+        assertEquals(2, report.appliedPayments());
+        assertEquals(1, report.rejectedLines());
+        assertEquals(2L, report.rejections().get(0).lineNumber());
+        assertEquals(Map.of(1L, 1, 3L, 1), recordedPayments);
+        assertEquals(PaymentType.PAID, first.getPayments().get(0).getType());
+        assertEquals(PaymentType.PENDING, second.getPayments().get(0).getType());
+    }
+
+    @Test
+    public void rejectionsAreCappedTest() {
+        loan(1L);
+        StringBuilder file = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            file.append("1,2030-01-01,10.00\n");
+        }
+
+        IngestionReport report = new PaymentIngestionService(paymentDAO, loanDAO, repricingEngine, TransactionTemplate.none(), 25, 5)
+                .ingest(new StringReader(file.toString()));
+
+        assertEquals(100, report.rejectedLines());
+        assertEquals(5, report.rejections().size());
+        assertEquals(0, report.appliedPayments());
+        assertEquals(0, report.recalculatedLoans());
+        assertEquals(0, writes.get());
+        assertTrue(recordedPayments.isEmpty());
+    }
+
+    private Loan loan(Long id) {
+        Loan loan = Loan.builder()
+                .id(id)
+                .amount(new BigDecimal("12000"))
+                .interestRate(new BigDecimal("0.12"))
+                .startDate(START)
+                .endDate(START.plusMonths(12))
+                .status(LoanStatus.ACTIVE)
+                .build();
+        loan.setPayments(paymentService.generateDifferentiatedSchedule(loan));
+        loans.put(id, loan);
+        return loan;
+    }
+}
@@ -2,14 +2,18 @@ package org.example.service;
 
 import org.example.config.HibernateUtil;
 import org.example.constants.LoanStatus;
+import org.example.constants.PaymentType;
 import org.example.dao.LoanDAO;
 import org.example.dao.PaymentDAO;
+import org.example.dao.TransactionTemplate;
 import org.example.dao.UserDAO;
 import org.example.dao.impl.LoanDAOImpl;
 import org.example.dao.impl.PaymentDAOImpl;
 import org.example.dao.impl.UserDAOImpl;
+import org.example.dto.LoanBalance;
 import org.example.dto.LoanDTO;
 import org.example.dto.UserDTO;
+import org.example.metrics.MetricsRegistry;
 import org.example.model.Loan;
 import org.example.model.Payment;
 import org.example.model.User;
@@ -21,6 +25,12 @@ import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class PaymentServiceTest {
 
@@ -92,6 +102,63 @@ public class PaymentServiceTest {
 
     }
 
+    @Test
+    public void paidPaymentOnlyOnceTest() {
+        Loan loan = createLoan(BigDecimal.valueOf(8000), testData.creditor, testData.debtor, LocalDate.now(), LocalDate.now().plusMonths(4), new BigDecimal("0.15"), LoanStatus.ACTIVE);
+        Payment payment = loan.getPayments().get(0);
+        Payment staleCopy = new PaymentDAOImpl(sessionFactory).findById(payment.getId());
+
+        paymentService.paidPayment(payment);
+
+        assertThrows(IllegalStateException.class, () -> paymentService.paidPayment(staleCopy));
+        assertEquals(PaymentType.PENDING, staleCopy.getType());
+        assertEquals(PaymentType.PAID, new PaymentDAOImpl(sessionFactory).findById(payment.getId()).getType());
+    }
+
+    @Test
+    public void paidPaymentKeepsRunningBalancesTest() {
+        Loan loan = createLoan(BigDecimal.valueOf(6000), testData.creditor, testData.debtor, LocalDate.now(), LocalDate.now().plusMonths(3), new BigDecimal("0.15"), LoanStatus.ACTIVE);
+        loan.setPayments(paymentService.generateAndSaveSchedule(loan));
+
+        Loan stored = loanDAO.findByIdWithPayments(loan.getId());
+        assertTrue(LoanBalances.compute(stored, stored.getPayments()).sameAs(LoanBalance.of(stored)));
+        assertTrue(LoanBalance.of(loan).sameAs(LoanBalance.of(stored)));
+
+        paymentService.paidPayment(loan.getPayments().get(0));
+
+        stored = loanDAO.findByIdWithPayments(loan.getId());
+        assertTrue(LoanBalances.compute(stored, stored.getPayments()).sameAs(LoanBalance.of(stored)));
+        assertTrue(LoanBalance.of(loan).sameAs(LoanBalance.of(stored)));
+        assertEquals(1, stored.getPaidCount());
+        assertEquals(loan.getPayments().get(1).getDueDate(), stored.getNextDueDate());
+    }
+
+    @Test
+    public void latePaymentKeepsRemainingDebtInSyncTest() {
+        TransactionTemplate transactions = new TransactionTemplate(sessionFactory);
+        LoanService transactionalLoanService = new LoanService(loanDAO, transactions, MetricsRegistry.disabled());
+        PaymentService transactionalPaymentService = new PaymentService(new PaymentDAOImpl(sessionFactory),
+                transactionalLoanService, transactions, MetricsRegistry.disabled());
+        Loan loan = createLoan(BigDecimal.valueOf(8000), testData.creditor, testData.debtor, LocalDate.now().minusMonths(2).minusDays(10), LocalDate.now().plusMonths(2).minusDays(10), new BigDecimal("0.15"), LoanStatus.ACTIVE);
+        loan.setPayments(transactionalPaymentService.generateAndSaveSchedule(loan));
+
+        transactionalPaymentService.paidPayment(loan.getPayments().get(0));
+
+        BigDecimal remainingDebt = transactionalLoanService.calculateRemainingDebt(loan);
+        Loan stored = loanDAO.findByIdWithPayments(loan.getId());
+        assertEquals(0, stored.getOutstandingTotal().compareTo(remainingDebt));
+        assertEquals(0, LoanBalances.pendingTotal(stored).compareTo(remainingDebt));
+        assertTrue(LoanBalances.compute(stored, stored.getPayments()).sameAs(LoanBalance.of(stored)));
+        assertEquals(amountsByDueDate(stored), amountsByDueDate(loan));
+    }
+
+    private static List<BigDecimal> amountsByDueDate(Loan loan) {
+        return loan.getPayments().stream()
+                .sorted(Comparator.comparing(Payment::getDueDate))
+                .map(payment -> payment.getAmount().setScale(2))
+                .toList();
+    }
+
     @AfterAll
     public static void cleanup() {
         try (var session = sessionFactory.openSession()) {
@@ -0,0 +1,152 @@
+package org.example.service;
+
+import jakarta.persistence.OptimisticLockException;
+import org.example.constants.LoanStatus;
+import org.example.constants.PaymentType;
+import org.example.dao.impl.LoanDAOImpl;
+import org.example.dao.impl.PaymentDAOImpl;
+import org.example.dto.RepricingReport;
+import org.example.model.Loan;
+import org.example.model.Payment;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RepricingEngineTest {
+
+    private final Map<Long, Loan> loans = new ConcurrentHashMap<>();
+    private final AtomicInteger writes = new AtomicInteger();
+    private final AtomicInteger reloads = new AtomicInteger();
+    private final AtomicBoolean failNextWrite = new AtomicBoolean();
+    private final Set<Long> changedSinceLoad = ConcurrentHashMap.newKeySet();
+    private final List<Payment> written = Collections.synchronizedList(new ArrayList<>());
+
+    private final LoanDAOImpl loanDAO = new LoanDAOImpl(null) {
+        @Override
+        public List<Loan> findWithPayments(Collection<Long> loanIds) {
+            return loanIds.stream().map(loans::get).toList();
+        }
+
+        @Override
+        public Loan findByIdWithPayments(Long loanId) {
+            reloads.incrementAndGet();
+            return latePaidLoan(loanId, new BigDecimal("0.12"));
+        }
+
+        @Override
+        public boolean lockVersion(Long loanId, Long version) {
+            return !changedSinceLoad.remove(loanId);
+        }
+    };
+
+    private final PaymentDAOImpl paymentDAO = new PaymentDAOImpl(null) {
+        @Override
+        public List<Payment> updateAll(Collection<Payment> entities) {
+            if (failNextWrite.getAndSet(false)) {
+                throw new OptimisticLockException("stale payment");
+            }
+            writes.incrementAndGet();
+            written.addAll(entities);
+            return new ArrayList<>(entities);
+        }
+    };
+
+    private final PaymentService paymentService = new PaymentService(paymentDAO, new LoanService(loanDAO));
+
+    @Test
+    public void repriceTest() {
+        for (long id = 1; id <= 50; id++) {
+            loans.put(id, latePaidLoan(id, new BigDecimal("0.12")));
+        }
+
+        RepricingReport report = new RepricingEngine(loanDAO, paymentDAO, paymentService, 4, 10, 2)
+                .reprice(loans.keySet());
+
+        assertEquals(50, report.loans());
+        assertEquals(50, report.repricedLoans());
+        assertTrue(report.failures().isEmpty());
+        assertEquals(5, writes.get());
+        assertEquals(report.updatedPayments(), written.size());
+        assertTrue(report.updatedPayments() > 0);
+    }
+
+    @Test
+    public void failedLoanDoesNotAbortRunTest() {
+        for (long id = 1; id <= 20; id++) {
+            loans.put(id, latePaidLoan(id, id == 7 ? null : new BigDecimal("0.12")));
+        }
+
+        RepricingReport report = new RepricingEngine(loanDAO, paymentDAO, paymentService, 2, 5, 1)
+                .reprice(loans.keySet());
+
+        assertEquals(20, report.loans());
+        assertEquals(19, report.repricedLoans());
+        assertEquals(1, report.failures().size());
+        assertEquals(Long.valueOf(7), report.failures().get(0).loanId());
+    }
+
+    @Test
+    public void failedBatchWriteRepricesLoanByLoanTest() {
+        for (long id = 1; id <= 5; id++) {
+            loans.put(id, latePaidLoan(id, new BigDecimal("0.12")));
+        }
+        failNextWrite.set(true);
+
+        RepricingReport report = new RepricingEngine(loanDAO, paymentDAO, paymentService, 1, 5, 1)
+                .reprice(loans.keySet());
+
+        assertEquals(5, report.repricedLoans());
+        assertTrue(report.failures().isEmpty());
+        assertEquals(5, reloads.get());
+        assertEquals(5, writes.get());
+    }
+
+    @Test
+    public void loanChangedSinceLoadIsRepricedLoanByLoanTest() {
+        for (long id = 1; id <= 5; id++) {
+            loans.put(id, latePaidLoan(id, new BigDecimal("0.12")));
+        }
+        changedSinceLoad.add(3L);
+
+        RepricingReport report = new RepricingEngine(loanDAO, paymentDAO, paymentService, 1, 5, 1)
+                .reprice(loans.keySet());
+
+        assertEquals(5, report.repricedLoans());
+        assertTrue(report.failures().isEmpty());
+        assertEquals(5, reloads.get());
+        assertEquals(5, writes.get());
+    }
+
+    private Loan latePaidLoan(long id, BigDecimal interestRate) {
+        LocalDate startDate = LocalDate.of(2024, 1, 15);
+        List<Payment> schedule = paymentService.generateDifferentiatedSchedule(
+                loan(id, new BigDecimal("0.12"), startDate, List.of()));
+        schedule.get(0).setType(PaymentType.PAID);
+        schedule.get(0).setPaidDate(schedule.get(0).getDueDate().plusDays(20));
+        return loan(id, interestRate, startDate, schedule);
+    }
+
+    private Loan loan(long id, BigDecimal interestRate, LocalDate startDate, List<Payment> payments) {
+        return Loan.builder()
+                .id(id)
+                .amount(BigDecimal.valueOf(1_000 * id).setScale(2))
+                .interestRate(interestRate)
+                .startDate(startDate)
+                .endDate(startDate.plusMonths(12))
+                .status(LoanStatus.ACTIVE)
+                .payments(payments)
+                .build();
+    }
+}